@@ -0,0 +1,65 @@
+package sandbox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full game ticks through {@link Board#actionPerformed()} with the autopilot on, covering
+ * search, movement, food and collision handling together. Games are seeded, and a new one
+ * is started whenever the snake dies or a game has gone on for MAX_TICKS.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardTickBenchmark {
+
+	private final int MAX_TICKS = 20_000;
+
+	@Param({ "BFS", "BFS_MANHATTAN", "BFS_TIMED", "DFS", "ASTAR", "HEURISTIC", "LONGEST_PATH", "BFS_BIDIRECTIONAL", "ASTAR_STRAIGHT" })
+	public String strategy;
+
+	@Param("1")
+	public long seed;
+
+	private Pathfinding pathfinding;
+	private long games;
+	private Board board;
+	private int ticks;
+
+	@Setup
+	public void setUp() {
+		pathfinding = Pathfinding.valueOf(strategy);
+		games = 0;
+		newGame();
+	}
+
+	@Benchmark
+	public GameState tick() {
+		if (board.getGameState() != GameState.LIVE || ticks >= MAX_TICKS) {
+			newGame();
+		}
+		board.actionPerformed();
+		ticks++;
+		return board.getGameState();
+	}
+
+	private void newGame() {
+		board = new HeadlessGame(pathfinding, seed + games++).getBoard();
+		board.togglePause();
+		ticks = 0;
+	}
+}
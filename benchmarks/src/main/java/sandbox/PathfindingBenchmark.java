@@ -0,0 +1,60 @@
+package sandbox;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One call to {@link Pathfinding#find} per operation, on each fixed {@link Scenario}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathfindingBenchmark {
+
+	// names rather than the enums themselves, the generated benchmark code lives in another package
+	@Param({ "BFS", "BFS_MANHATTAN", "BFS_TIMED", "DFS", "ASTAR", "HEURISTIC", "LONGEST_PATH", "BFS_BIDIRECTIONAL", "ASTAR_STRAIGHT" })
+	public String strategy;
+
+	@Param({ "EMPTY", "FILLED_25", "FILLED_50", "FILLED_90", "FOOD_BEHIND_BODY" })
+	public String board;
+
+	// square boards, e.g. -p size=1024 for the large-board mode
+	@Param("50")
+	public int size;
+
+	private Pathfinding pathfinding;
+	private SnakeBody snake;
+	private Occupancy occupancy;
+	private int[] foods;
+	private Topology topology;
+
+	@Setup
+	public void setUp() {
+		pathfinding = Pathfinding.valueOf(strategy);
+		Scenario scenario = Scenario.valueOf(board);
+		snake = scenario.snake(size, size);
+		occupancy = scenario.occupancy(size, size);
+		foods = new int[] { snake.cellOf(scenario.food(size, size)) };
+		topology = Topology.forBoard(size, size);
+	}
+
+	@Benchmark
+	public List<Direction> find() {
+		return pathfinding.find(snake, occupancy, foods, topology);
+	}
+}
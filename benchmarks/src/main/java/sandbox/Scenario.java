@@ -0,0 +1,90 @@
+package sandbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed board states for the pathfinding benchmarks. Snakes are laid out as a serpentine
+ * from the top-left, tail first, so the amount of the board covered is exact and the head
+ * always has the open part of the board in front of it.
+ */
+enum Scenario {
+	EMPTY {
+		@Override
+		List<Coordinate> body(int width, int height) {
+			return serpentine(width, 5);
+		}
+	},
+	FILLED_25 {
+		@Override
+		List<Coordinate> body(int width, int height) {
+			return serpentine(width, width * height / 4);
+		}
+	},
+	FILLED_50 {
+		@Override
+		List<Coordinate> body(int width, int height) {
+			return serpentine(width, width * height / 2);
+		}
+	},
+	FILLED_90 {
+		@Override
+		List<Coordinate> body(int width, int height) {
+			return serpentine(width, width * height * 9 / 10);
+		}
+	},
+	// The body runs across the middle of the board between the head and the food,
+	// so the search has to find its way round one end of it
+	FOOD_BEHIND_BODY {
+		@Override
+		List<Coordinate> body(int width, int height) {
+			List<Coordinate> body = new ArrayList<>();
+			int middle = height / 2;
+			for (int x = width / 2; x >= 1; x--) {
+				body.add(new Coordinate(x, middle + 1));
+			}
+			for (int x = 1; x <= width - 2; x++) {
+				body.add(new Coordinate(x, middle));
+			}
+			return body;
+		}
+
+		@Override
+		Coordinate food(int width, int height) {
+			return new Coordinate(width / 2, height / 2 - 1);
+		}
+	};
+
+	// head first, as Board stores it
+	abstract List<Coordinate> body(int width, int height);
+
+	Coordinate food(int width, int height) {
+		return new Coordinate(width - 1, height - 1);
+	}
+
+	SnakeBody snake(int width, int height) {
+		SnakeBody snake = new SnakeBody(width, height);
+		for (Coordinate segment : body(width, height)) {
+			snake.pushTail(snake.cellOf(segment));
+		}
+		return snake;
+	}
+
+	Occupancy occupancy(int width, int height) {
+		Occupancy occupancy = new Occupancy(width, height);
+		for (Coordinate segment : body(width, height)) {
+			occupancy.occupy(segment.y * width + segment.x);
+		}
+		return occupancy;
+	}
+
+	private static List<Coordinate> serpentine(int width, int length) {
+		List<Coordinate> body = new ArrayList<>();
+		for (int i = length - 1; i >= 0; i--) {
+			int y = i / width;
+			int x = y % 2 == 0 ? i % width : width - 1 - i % width;
+			body.add(new Coordinate(x, y));
+		}
+		return body;
+	}
+}
@@ -0,0 +1,432 @@
+package sandbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Several autopilot snakes on one board, each with its own pathfinding, all moving at once.
+ * Every tick plans first: each live snake's search runs as its own task on a fork-join pool,
+ * against the board as the last tick left it, which nothing changes until every plan is in.
+ * Each snake plans round the others as though they were walls. The moves are then resolved
+ * on one thread: of heads that meet on a cell only a snake longer than the rest lives, a head
+ * that runs into any body dies, and the dead leave the board. Tails that move are out of the
+ * way in time, as for a single snake.
+ */
+class Arena {
+
+	private final int STARTING_SNAKE_LENGTH = 4;
+
+	private final GameMap map;
+	private final long seed;
+	private final Topology topology;
+	private final Occupancy occupancy;
+	private final CellGrid grid;
+	private final FreeCells freeCells;
+	private final Random random;
+	private final ForkJoinPool pool;
+	private final List<Contestant> contestants = new ArrayList<>();
+	// the tick a head last moved onto each cell, and whose it was, to find heads that meet
+	private final int[] headTick;
+	private final int[] headOwner;
+	private int[] foods;
+	private int ticks;
+
+	// One snake in the arena and how it has done so far
+	private final class Contestant implements Callable<Void> {
+		final Pathfinding pathfinding;
+		final SnakeBody body;
+		// the board as this snake plans on it, with the other snakes walled off
+		final Occupancy view;
+		Direction direction = Direction.RIGHT;
+		boolean alive = true;
+		int score;
+		int diedAt;
+		long planningNanos;
+		int plans;
+		long nodesExpanded;
+		// worked out while resolving a tick
+		int nextHead;
+		boolean moves, eats, crashed;
+		byte entered;
+
+		Contestant(Pathfinding pathfinding) {
+			this.pathfinding = pathfinding;
+			this.body = new SnakeBody(topology.getWidth(), topology.getHeight());
+			this.view = new Occupancy(topology.getWidth(), topology.getHeight());
+		}
+
+		// Only reads the board, so every snake can plan at once
+		@Override
+		public Void call() {
+			view.wallOff(occupancy);
+			for (int i = 0; i < body.size(); i++) {
+				view.removeWall(body.get(i));
+			}
+			SearchKernel kernel = SearchKernel.forBoard(topology.getWidth(), topology.getHeight());
+			long expanded = kernel.nodesExpanded();
+			long start = System.nanoTime();
+			List<Direction> path = pathfinding.find(body, view, foods, topology);
+			planningNanos += System.nanoTime() - start;
+			nodesExpanded += kernel.nodesExpanded() - expanded;
+			plans++;
+			if (!path.isEmpty()) {
+				direction = path.get(0);
+			}
+			return null;
+		}
+	}
+
+	public Arena(List<Pathfinding> strategies, long seed, GameMap map, ForkJoinPool pool) {
+		int width = map.getWidth(),
+			height = map.getHeight();
+		if (width <= Board.STARTING_COORD || height <= Board.STARTING_COORD || (long) width * height > Board.MAX_CELLS) {
+			throw new IllegalArgumentException("Board must be larger than " + Board.STARTING_COORD + "x"
+					+ Board.STARTING_COORD + " and have at most " + Board.MAX_CELLS + " cells, not " + width + "x" + height);
+		}
+		if (strategies.isEmpty() || strategies.contains(Pathfinding.MANUAL)) {
+			throw new IllegalArgumentException("Every snake in the arena needs an autopilot, not " + strategies);
+		}
+		this.map = map;
+		this.seed = seed;
+		this.topology = Topology.forBoard(width, height);
+		this.occupancy = new Occupancy(width, height);
+		this.grid = new CellGrid(width * height, map.getWalls());
+		this.freeCells = new FreeCells(width * height);
+		this.random = new Random(seed);
+		this.pool = pool;
+		this.headTick = new int[width * height];
+		this.headOwner = new int[width * height];
+		for (int wall : map.getWalls()) {
+			occupancy.addWall(wall);
+			freeCells.remove(wall);
+		}
+
+		int[] rows = startingRows(strategies.size());
+		for (int i = 0; i < strategies.size(); i++) {
+			Contestant contestant = new Contestant(strategies.get(i));
+			for (int j = 0; j <= STARTING_SNAKE_LENGTH; j++) {
+				int segment = topology.cellOf(Board.STARTING_COORD - j, rows[i]);
+				contestant.body.pushTail(segment);
+				occupy(segment);
+			}
+			contestants.add(contestant);
+		}
+		foods = new int[Math.min(map.getFoods(), freeCells.size())];
+		for (int i = 0; i < foods.length; i++) {
+			foods[i] = placeFood();
+		}
+	}
+
+	// Every snake starts heading right along its own row, the rows spread down the board
+	// from the one a single snake starts on, skipping any with walls in the way
+	private int[] startingRows(int snakes) {
+		List<Integer> clear = new ArrayList<>();
+		for (int y = Board.STARTING_COORD; y < topology.getHeight(); y += 2) {
+			boolean walled = false;
+			for (int x = 0; x <= Board.STARTING_COORD; x++) {
+				walled |= grid.get(topology.cellOf(x, y)) == CellGrid.WALL;
+			}
+			if (!walled) {
+				clear.add(y);
+			}
+		}
+		if (clear.size() < snakes) {
+			throw new IllegalArgumentException("The map only has room to start " + clear.size() + " snakes, not " + snakes);
+		}
+		int[] rows = new int[snakes];
+		for (int i = 0; i < snakes; i++) {
+			rows[i] = clear.get(i * clear.size() / snakes);
+		}
+		return rows;
+	}
+
+	public int getTicks() {
+		return ticks;
+	}
+
+	public int[] getFoods() {
+		return foods;
+	}
+
+	public int alive() {
+		int alive = 0;
+		for (Contestant contestant : contestants) {
+			alive += contestant.alive ? 1 : 0;
+		}
+		return alive;
+	}
+
+	public boolean isAlive(int snake) {
+		return contestants.get(snake).alive;
+	}
+
+	public int getScore(int snake) {
+		return contestants.get(snake).score;
+	}
+
+	SnakeBody getBody(int snake) {
+		return contestants.get(snake).body;
+	}
+
+	Occupancy getOccupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * Plays until one snake is left (or none, when there was only one to begin with) or
+	 * maxTicks have been stepped, and returns how each snake did in the order they were given.
+	 */
+	public List<GameResult> run(long maxTicks) throws InterruptedException, ExecutionException {
+		int last = contestants.size() > 1 ? 1 : 0;
+		long start = System.nanoTime();
+		while (alive() > last && ticks < maxTicks) {
+			tick();
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		List<GameResult> results = new ArrayList<>();
+		for (Contestant contestant : contestants) {
+			results.add(new GameResult(contestant.pathfinding, seed, contestant.alive ? ticks : contestant.diedAt,
+					contestant.score, contestant.body.size(), !contestant.alive, contestant.planningNanos,
+					contestant.plans, 0, contestant.nodesExpanded, elapsedNanos, 0));
+		}
+		return results;
+	}
+
+	// The one snake left alive, or -1 for a draw or a game that only ever had one snake
+	public int winner() {
+		if (contestants.size() < 2 || alive() != 1) {
+			return -1;
+		}
+		for (int i = 0; i < contestants.size(); i++) {
+			if (contestants.get(i).alive) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public void tick() throws InterruptedException, ExecutionException {
+		List<Contestant> planning = live();
+		// get() rethrows anything a search threw
+		for (Future<Void> plan : pool.invokeAll(planning)) {
+			plan.get();
+		}
+		resolve(planning);
+	}
+
+	// Moves every live snake the given way, one direction per snake in the order they were
+	// given, instead of planning
+	void tick(Direction... directions) {
+		for (int i = 0; i < directions.length; i++) {
+			contestants.get(i).direction = directions[i];
+		}
+		resolve(live());
+	}
+
+	// Puts the food on the given free cells instead of wherever it was
+	void setFoods(int... cells) {
+		for (int food : foods) {
+			if (grid.get(food) == CellGrid.FOOD) {
+				freeCells.add(food);
+				grid.set(food, CellGrid.EMPTY);
+			}
+		}
+		for (int cell : cells) {
+			freeCells.remove(cell);
+			grid.set(cell, CellGrid.FOOD);
+		}
+		foods = cells.clone();
+	}
+
+	private List<Contestant> live() {
+		List<Contestant> live = new ArrayList<>();
+		for (Contestant contestant : contestants) {
+			if (contestant.alive) {
+				live.add(contestant);
+			}
+		}
+		return live;
+	}
+
+	private void resolve(List<Contestant> moving) {
+		ticks++;
+		for (Contestant snake : moving) {
+			snake.nextHead = topology.neighbour(snake.body.getHead(), snake.direction);
+			// walls and edges stop a snake where it is
+			snake.moves = snake.nextHead >= 0 && grid.get(snake.nextHead) != CellGrid.WALL;
+			snake.crashed = !snake.moves;
+			snake.eats = snake.moves && grid.get(snake.nextHead) == CellGrid.FOOD;
+			snake.entered = CellGrid.EMPTY;
+		}
+		// every tail moves before any head, unless its snake is about to grow
+		for (Contestant snake : moving) {
+			if (snake.moves && !snake.eats) {
+				vacate(snake.body.popTail());
+			}
+		}
+		// a head runs into whatever body is left, whoever's it is
+		for (int i = 0; i < moving.size(); i++) {
+			Contestant snake = moving.get(i);
+			if (!snake.moves) {
+				continue;
+			}
+			int head = snake.nextHead;
+			snake.entered = grid.get(head);
+			snake.crashed = snake.entered == CellGrid.BODY;
+			if (headTick[head] != ticks) {
+				headTick[head] = ticks;
+				headOwner[head] = i;
+				continue;
+			}
+			// of heads that meet the longest snake lives on, and of equals none do
+			Contestant longest = moving.get(headOwner[head]);
+			if (snake.body.size() > longest.body.size()) {
+				longest.crashed = true;
+				headOwner[head] = i;
+			} else {
+				snake.crashed = true;
+				longest.crashed |= snake.body.size() == longest.body.size();
+			}
+		}
+		// food a head moved onto is gone even if the snake died there, but only the living ate it
+		boolean eaten = false;
+		for (Contestant snake : moving) {
+			if (snake.moves) {
+				snake.body.pushHead(snake.nextHead);
+				occupy(snake.nextHead);
+				if (snake.eats) {
+					snake.score += snake.crashed ? 0 : 1;
+					eaten = true;
+				}
+			}
+		}
+		for (Contestant snake : moving) {
+			if (snake.crashed) {
+				remove(snake, snake.moves && (snake.entered == CellGrid.BODY 
+						|| !moving.get(headOwner[snake.nextHead]).crashed));
+			}
+		}
+		if (eaten) {
+			replaceFoods();
+		}
+	}
+
+	// A head that ran into a body, or met a longer snake's head, is on a cell that isn't its to clear
+	private void remove(Contestant snake, boolean headTaken) {
+		snake.alive = false;
+		snake.diedAt = ticks;
+		for (int i = headTaken ? 1 : 0; i < snake.body.size(); i++) {
+			vacate(snake.body.get(i));
+		}
+	}
+
+	private void occupy(int cell) {
+		occupancy.occupy(cell);
+		freeCells.remove(cell);
+		grid.set(cell, CellGrid.BODY);
+	}
+
+	private void vacate(int cell) {
+		occupancy.vacate(cell);
+		freeCells.add(cell);
+		grid.set(cell, CellGrid.EMPTY);
+	}
+
+	// Only called while there is somewhere free to put it
+	private int placeFood() {
+		int food = freeCells.random(random);
+		freeCells.remove(food);
+		grid.set(food, CellGrid.FOOD);
+		return food;
+	}
+
+	// Keeps the food that wasn't eaten and tops it up again, as far as there's room
+	private void replaceFoods() {
+		int[] kept = new int[map.getFoods()];
+		int count = 0;
+		for (int food : foods) {
+			if (grid.get(food) == CellGrid.FOOD) {
+				kept[count++] = food;
+			}
+		}
+		while (count < kept.length && freeCells.size() > 0) {
+			kept[count++] = placeFood();
+		}
+		foods = Arrays.copyOf(kept, count);
+	}
+
+	/**
+	 * Usage: Arena [games] [baseSeed] [maxTicks] [threads] [width] [height] [strategy...]
+	 * <p>
+	 * Every game puts one snake of each strategy listed (every autopilot if none are) in the
+	 * arena, so a strategy can be listed more than once. Games are played one after another,
+	 * each planning tick spread across the threads. The map comes from -Dsnek.map, -Dsnek.walls
+	 * and -Dsnek.foods as {@link GameMap#fromProperties} reads them with the base seed.
+	 */
+	public static void main(String[] args) throws Exception {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		long baseSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		long maxTicks = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		int width = args.length > 4 ? Integer.parseInt(args[4]) : Board.DEFAULT_WIDTH;
+		int height = args.length > 5 ? Integer.parseInt(args[5]) : width;
+
+		List<Pathfinding> strategies = new ArrayList<>();
+		for (int i = 6; i < args.length; i++) {
+			strategies.add(Pathfinding.valueOf(args[i]));
+		}
+		if (strategies.isEmpty()) {
+			Arrays.stream(Pathfinding.values())
+				.filter(e -> e != Pathfinding.MANUAL)
+				.forEach(strategies::add);
+		}
+		GameMap map = GameMap.fromProperties(width, height, baseSeed);
+
+		Map<Pathfinding, Tournament.Summary> summaries = new EnumMap<>(Pathfinding.class);
+		Map<Pathfinding, Integer> wins = new EnumMap<>(Pathfinding.class);
+		for (Pathfinding strategy : strategies) {
+			summaries.put(strategy, new Tournament.Summary());
+			wins.put(strategy, 0);
+		}
+		int draws = 0;
+		long ticks = 0;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < games; i++) {
+				Arena arena = new Arena(strategies, baseSeed + i, map, pool);
+				for (GameResult result : arena.run(maxTicks)) {
+					summaries.get(result.pathfinding).add(result);
+				}
+				int winner = arena.winner();
+				if (winner < 0) {
+					draws++;
+				} else {
+					wins.merge(strategies.get(winner), 1, Integer::sum);
+				}
+				ticks += arena.getTicks();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+		System.out.print(Tournament.formatTable(summaries));
+		Map<String, Integer> outcomes = new LinkedHashMap<>();
+		wins.forEach((strategy, won) -> outcomes.put(strategy.toString(), won));
+		outcomes.put("draws", draws);
+		System.out.println("Wins: " + outcomes);
+		System.out.printf("%d games of %d snakes on %d threads in %.1fs (%.0f ticks/s)%n",
+				games, strategies.size(), threads, seconds, ticks / seconds);
+	}
+}
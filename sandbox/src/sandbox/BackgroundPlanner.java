@@ -0,0 +1,139 @@
+package sandbox;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the search on a worker thread so a slow plan never holds up the game tick. The board
+ * hands over a copy of the snake and the foods tagged with its version, and gets back a plan
+ * stamped with that version, the head it starts from and the foods it heads for, any of which
+ * the board may have moved on from by the time it arrives. Both directions go through an atomic
+ * reference with no locks, and only the latest request gets planned.
+ */
+class BackgroundPlanner {
+
+	static final class Plan {
+		final long version;
+		// the cell the path starts from
+		final int head;
+		// the foods it was planned towards, as they were handed over
+		final int[] foods;
+		final List<Direction> path;
+		final long planningNanos;
+		final long nodesExpanded;
+		final int frontierPeak;
+
+		Plan(long version, int head, int[] foods, List<Direction> path, long planningNanos, long nodesExpanded, 
+				int frontierPeak) {
+			this.version = version;
+			this.head = head;
+			this.foods = foods;
+			this.path = path;
+			this.planningNanos = planningNanos;
+			this.nodesExpanded = nodesExpanded;
+			this.frontierPeak = frontierPeak;
+		}
+	}
+
+	private static final class Request {
+		final long version;
+		final Pathfinding pathfinding;
+		final int[] body;
+		final int[] foods;
+
+		Request(long version, Pathfinding pathfinding, int[] body, int[] foods) {
+			this.version = version;
+			this.pathfinding = pathfinding;
+			this.body = body;
+			this.foods = foods;
+		}
+	}
+
+	private final Topology topology;
+	private final int[] walls;
+	private final AtomicReference<Request> request = new AtomicReference<>();
+	private final AtomicReference<Plan> result = new AtomicReference<>();
+	private final Thread worker;
+	private volatile Thread waiter;
+
+	public BackgroundPlanner(Topology topology, int[] walls) {
+		this.topology = topology;
+		this.walls = walls;
+		this.worker = new Thread(this::run, "snake-planner");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	// Replaces any request the worker hasn't picked up yet. The foods are read as they are, so mustn't change
+	public void submit(long version, Pathfinding pathfinding, SnakeBody snake, int[] foods) {
+		int[] body = new int[snake.size()];
+		for (int i = 0; i < body.length; i++) {
+			body[i] = snake.get(i);
+		}
+		request.set(new Request(version, pathfinding, body, foods));
+		LockSupport.unpark(worker);
+	}
+
+	/**
+	 * Waits until a plan is ready or the deadline (a System.nanoTime value) has passed, in which
+	 * case it returns null. The plan is for whichever version was last planned, not necessarily
+	 * the latest one submitted.
+	 */
+	public Plan await(long deadline) {
+		waiter = Thread.currentThread();
+		try {
+			while (true) {
+				Plan plan = result.getAndSet(null);
+				if (plan != null) {
+					return plan;
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return null;
+				}
+				LockSupport.parkNanos(this, remaining);
+			}
+		} finally {
+			waiter = null;
+		}
+	}
+
+	private void run() {
+		SnakeBody snake = new SnakeBody(topology.getWidth(), topology.getHeight());
+		Occupancy occupancy = new Occupancy(topology.getWidth(), topology.getHeight());
+		for (int wall : walls) {
+			occupancy.addWall(wall);
+		}
+		SearchKernel kernel = SearchKernel.forBoard(topology.getWidth(), topology.getHeight());
+		while (true) {
+			Request next = request.getAndSet(null);
+			if (next == null) {
+				LockSupport.park(this);
+				continue;
+			}
+
+			// only the old body needs clearing, not the whole board
+			for (int i = 0; i < snake.size(); i++) {
+				occupancy.vacate(snake.get(i));
+			}
+			snake.clear();
+			for (int cell : next.body) {
+				snake.pushTail(cell);
+				occupancy.occupy(cell);
+			}
+
+			long expandedBefore = kernel.nodesExpanded();
+			kernel.resetFrontierPeak();
+			long start = System.nanoTime();
+			List<Direction> path = next.pathfinding.find(snake, occupancy, next.foods, topology);
+			result.set(new Plan(next.version, next.body[0], next.foods, path, System.nanoTime() - start, 
+					kernel.nodesExpanded() - expandedBefore, kernel.frontierPeak()));
+
+			Thread waiting = waiter;
+			if (waiting != null) {
+				LockSupport.unpark(waiting);
+			}
+		}
+	}
+}
@@ -1,220 +1,615 @@
-package sandbox;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
-class Board {
-
-	private final int WIDTH = 50, 
-					  HEIGHT = 50;
-	
-	private final int STARTING_SNAKE_LENGTH = 4;
-	private final int STARTING_COORD = 5;
-	private List<Coordinate> snake = new ArrayList<>();
-	private GameState gameState = GameState.INIT;
-	private Pathfinding pathfinding = Pathfinding.MANUAL;
-	private final Random random = new Random();
-	private View view;
-	private GameSpeedHandler speedHandler;
-	private Coordinate foodCoordinate;
-	private Direction currentDirection;
-
-	public Board(View view, GameSpeedHandler speedHandler) {
-		this.view = view;
-		this.speedHandler = speedHandler;
-		view.init(STARTING_SNAKE_LENGTH, WIDTH, HEIGHT);
-		initGame();
-	}
-
-
-	private void initGame() {
-		currentDirection = Direction.RIGHT;
-		pathToFollow = new ArrayList<>();
-		
-		snake = new ArrayList<Coordinate>();
-		for (int i = 0; i <= STARTING_SNAKE_LENGTH; i++) {
-			snake.add(new Coordinate(STARTING_COORD - i, STARTING_COORD));
-		}
-		relocateFood();
-		speedHandler.gameStarted();
-	}
-
-	public GameState getGameState() {
-		return gameState;
-	}
-	
-	public List<String> getStates() {
-		List<String> states = new ArrayList<>();
-		
-		if (pathfinding != Pathfinding.MANUAL) {
-			states.add("AutoSnek: " + pathfinding.getStateName());			
-		}
-		
-		if (speedHandler.isFast()) {
-			states.add("Fast");
-		}
-		return states;		
-	}
-
-	private Coordinate move() {
-		Coordinate head = snake.get(0);
-		switch (currentDirection) {
-		case LEFT:
-			head = new Coordinate(head.x - 1, head.y);
-			break;
-			
-		case RIGHT:
-			head = new Coordinate(head.x + 1, head.y);
-			break;
-			
-		case UP:
-			head = new Coordinate(head.x, head.y - 1);
-			break;
-			
-		case DOWN:
-			head = new Coordinate(head.x, head.y + 1);
-			break;
-		}
-		
-		for (int i = snake.size() -1; i < 0; i--) {
-			//if head
-			snake.set(i, snake.get(i -1));			
-		}
-		
-		snake.add(0, head);
-		
-		// return last
-		return snake.remove(snake.size() - 1);
-	}
-
-	private void relocateFood() {
-		foodCoordinate = new Coordinate(
-				random.nextInt(WIDTH),
-				random.nextInt(HEIGHT));
-		if (snake.contains(foodCoordinate)) {
-			relocateFood();
-		}
-	}
-
-	List<Direction> pathToFollow = new ArrayList<>();
-
-	
-	public void actionPerformed() {
-				
-		switch (gameState) {
-			case LIVE:
-				switch(pathfinding) {
-				case MANUAL:
-					break;
-				default:
-					if (pathToFollow.isEmpty()) {
-						pathToFollow = pathfinding.find(snake, foodCoordinate, WIDTH, HEIGHT);
-					} 
-					if (!pathToFollow.isEmpty()) {
-						currentDirection = pathToFollow.remove(0);					
-					}
-					break;
-				}
-				checkFood(snake, foodCoordinate, move());
-				checkCollision(snake);
-				break;
-			case PAUSED:
-			default:
-				break;
-		}
-	}
-	
-	
-	private void checkFood(List<Coordinate> snake, Coordinate foodCoordinate, Coordinate last) {
-		if (snake.get(0).equals(foodCoordinate)) {
-			snake.add(last);
-			view.foodEaten();
-			
-			relocateFood();
-		}
-	}
-	
-	
-	private void checkCollision(List<Coordinate> snake) {
-
-		Coordinate snakeHead = null;
-		for (Coordinate snakeSegment : snake) {
-			if (snakeHead == null) {
-				snakeHead = snake.get(0);
-
-			} else {
-				// if head overlaps any of body
-				if (snakeHead.x == snakeSegment.x && snakeHead.y == snakeSegment.y) {
-					gameState = GameState.FAIL;
-				}
-			}
-		}
-
-		// if outside of grid
-		if (snake.get(0).y >= HEIGHT || snake.get(0).y < 0 || snake.get(0).x >= WIDTH
-				|| snake.get(0).x < 0) {
-			gameState = GameState.FAIL;
-		}
-
-		if (gameState == GameState.PAUSED || gameState == GameState.FAIL) {
-			speedHandler.gamePaused();
-		}
-	}
-	
-	
-	public void directionPressed(Direction direction) {
-		setCurrentDirectionIfNotAlready(direction);
-	}
-	
-	private void setCurrentDirectionIfNotAlready(Direction direction) {
-		if (direction != currentDirection.opposite()) {
-			currentDirection = direction;
-		}
-	}
-	
-	public void togglePathfinding(Pathfinding selected) {
-		if (pathfinding == selected) {
-			pathfinding = Pathfinding.MANUAL;					
-		} else {
-			pathfinding = selected;
-		}
-	}
-	
-	public void toggleSpeed() {
-		speedHandler.gameSpeedChanged();
-	}
-	
-	public void toggleColorfulMode() {
-		view.toggleColourfulMode();
-	}
-
-
-	public void togglePause() {
-		switch (gameState) {
-		case LIVE:
-			gameState = GameState.PAUSED;
-			break;
-
-		case PAUSED:
-			gameState = GameState.LIVE;
-			break;
-			
-		default:
-			initGame();
-			gameState = GameState.LIVE;
-			break;
-		}
-	}
-
-
-	public Coordinate getFoodCoordinate() {
-		return foodCoordinate;
-	}
-
-
-	public List<Coordinate> getSnake() {
-		return snake;
-	}
-}
-
+package sandbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+class Board {
+
+	static final int DEFAULT_WIDTH = 50, 
+					 DEFAULT_HEIGHT = 50;
+	// cell indices have to fit in SearchKernel's A* heap entries
+	static final int MAX_CELLS = 2048 * 2048;
+
+	private final int WIDTH, 
+					  HEIGHT;
+	
+	// the snake starts on this row, heading right from this column
+	static final int STARTING_COORD = 5;
+
+	private final int STARTING_SNAKE_LENGTH = 4;
+	private final int MIN_TRAIL = 64;
+	private final SnakeBody snake;
+	private final Occupancy occupancy;
+	private final FreeCells freeCells;
+	private final CellGrid grid;
+	private final GameMap map;
+	private final Topology topology;
+	private final Replanner replanner;
+	private GameState gameState = GameState.INIT;
+	private Pathfinding pathfinding = Pathfinding.MANUAL;
+	// each game's food comes from a Random reset to the game's seed, so the seed and the moves replay it
+	private long seed;
+	private final Random random;
+	private GameView view;
+	private GameSpeedHandler speedHandler;
+	// replaced rather than changed when food is eaten, as snapshots share it
+	private int[] foods;
+	private Direction currentDirection;
+	// what was on the cell the head moved onto this tick
+	private byte entered;
+	private long planningNanos;
+	private int plans;
+	private int repairs;
+	private long nodesExpanded;
+	private int fallbackMoves;
+	// bumped whenever the board changes, so plans made before then can be told apart
+	private long version;
+	// the last version bumped by something other than a move, which plans can't catch up with
+	private long resetVersion;
+	private BackgroundPlanner planner;
+	private long planningDeadlineNanos;
+	// the planner is still working on the last request, so there's no need to send another
+	private boolean planRequested;
+	private int score;
+	// every cell the head has been through, newest last. Entries are never written twice: a
+	// full trail moves to a new array, so snapshots can go on reading the old one
+	private int[] trail;
+	private int trailHead;
+	private List<String> states;
+	private volatile BoardSnapshot snapshot;
+	// null while metrics are off, so ticks cost nothing extra
+	private volatile Metrics metrics;
+	private ReplayRecorder recorder;
+	private ReplayPlayer replay;
+	private HistoryWriter history;
+	private int tickFrontierPeak;
+	private int tickPathLength;
+
+	public Board(GameView view, GameSpeedHandler speedHandler) {
+		this(view, speedHandler, new Random().nextLong());
+	}
+
+	public Board(GameView view, GameSpeedHandler speedHandler, long seed) {
+		this(view, speedHandler, seed, DEFAULT_WIDTH, DEFAULT_HEIGHT);
+	}
+
+	public Board(GameView view, GameSpeedHandler speedHandler, long seed, int width, int height) {
+		this(view, speedHandler, seed, GameMap.empty(width, height));
+	}
+
+	public Board(GameView view, GameSpeedHandler speedHandler, long seed, GameMap map) {
+		int width = map.getWidth(), 
+			height = map.getHeight();
+		if (width <= STARTING_COORD || height <= STARTING_COORD || (long) width * height > MAX_CELLS) {
+			throw new IllegalArgumentException("Board must be larger than " + STARTING_COORD + "x" + STARTING_COORD 
+					+ " and have at most " + MAX_CELLS + " cells, not " + width + "x" + height);
+		}
+		for (int wall : map.getWalls()) {
+			if (wall / width == STARTING_COORD && wall % width <= STARTING_COORD) {
+				throw new IllegalArgumentException("The map has a wall where the snake starts, at " 
+						+ wall % width + "," + wall / width);
+			}
+		}
+		if (map.getWalls().length + STARTING_SNAKE_LENGTH + 1 >= width * height) {
+			throw new IllegalArgumentException("The map leaves no room for food");
+		}
+		this.map = map;
+		this.WIDTH = width;
+		this.HEIGHT = height;
+		this.snake = new SnakeBody(width, height);
+		this.occupancy = new Occupancy(width, height);
+		this.freeCells = new FreeCells(width * height);
+		this.grid = new CellGrid(width * height, map.getWalls());
+		for (int wall : map.getWalls()) {
+			occupancy.addWall(wall);
+		}
+		this.topology = Topology.forBoard(width, height);
+		this.replanner = new Replanner(topology);
+		this.view = view;
+		this.seed = seed;
+		this.random = new Random(seed);
+		this.speedHandler = speedHandler;
+		view.init(STARTING_SNAKE_LENGTH, WIDTH, HEIGHT);
+		initGame();
+	}
+
+
+	private void initGame() {
+		currentDirection = Direction.RIGHT;
+		pathToFollow = new ArrayList<>();
+		planningNanos = 0;
+		plans = 0;
+		repairs = 0;
+		nodesExpanded = 0;
+		fallbackMoves = 0;
+		score = 0;
+		version++;
+		resetVersion = version;
+		random.setSeed(seed);
+		
+		snake.clear();
+		occupancy.clear();
+		grid.clear();
+		freeCells.clear();
+		for (int wall : map.getWalls()) {
+			freeCells.remove(wall);
+		}
+		for (int i = 0; i <= STARTING_SNAKE_LENGTH; i++) {
+			int segment = snake.cellOf(STARTING_COORD - i, STARTING_COORD);
+			snake.pushTail(segment);
+			occupancy.occupy(segment);
+			freeCells.remove(segment);
+			grid.set(segment, CellGrid.BODY);
+		}
+		trail = new int[MIN_TRAIL];
+		trailHead = -1;
+		for (int i = snake.size() - 1; i >= 0; i--) {
+			trail[++trailHead] = snake.get(i);
+		}
+		foods = new int[Math.min(map.getFoods(), freeCells.size())];
+		for (int i = 0; i < foods.length; i++) {
+			foods[i] = placeFood();
+		}
+		updateStates();
+		speedHandler.gameStarted();
+	}
+
+	private void recordHead(int cell) {
+		if (trailHead + 1 == trail.length) {
+			// keep the whole body, tail included, in case this move eats and it grows back
+			int kept = snake.size();
+			int[] moved = new int[Math.max(MIN_TRAIL, (kept + 1) * 2)];
+			System.arraycopy(trail, trailHead - kept + 1, moved, 0, kept);
+			trail = moved;
+			trailHead = kept - 1;
+		}
+		trail[++trailHead] = cell;
+	}
+
+	// Lets the view, on whatever thread, see the board as it stands now
+	private void publish() {
+		snapshot = new BoardSnapshot(WIDTH, HEIGHT, trail, trailHead, snake.size(), foods, 
+				map.getWalls(), gameState, score, states);
+	}
+
+	private void updateStates() {
+		states = Collections.unmodifiableList(getStates());
+		publish();
+	}
+
+	public BoardSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public GameState getGameState() {
+		return gameState;
+	}
+	
+	public List<String> getStates() {
+		List<String> states = new ArrayList<>();
+		
+		if (pathfinding != Pathfinding.MANUAL) {
+			states.add("AutoSnek: " + pathfinding.getStateName());			
+		}
+		
+		if (speedHandler.isUnlimited()) {
+			states.add("Unlimited");
+		} else if (speedHandler.isFast()) {
+			states.add("Fast");
+		}
+		return states;		
+	}
+
+	// Returns the cell the tail vacated, or -1 if the snake ran into a wall
+	private int move() {
+		entered = CellGrid.EMPTY;
+		int head = topology.neighbour(snake.getHead(), currentDirection);
+		// walls stop the snake just as the edges do
+		if (head < 0 || grid.get(head) == CellGrid.WALL) {
+			gameState = GameState.FAIL;
+			return -1;
+		}
+		
+		version++;
+		recordHead(head);
+		int last = snake.popTail();
+		
+		// vacate the tail first, the head may be moving into the cell it leaves
+		occupancy.vacate(last);
+		freeCells.add(last);
+		grid.set(last, CellGrid.EMPTY);
+		entered = grid.get(head);
+		snake.pushHead(head);
+		occupancy.occupy(head);
+		freeCells.remove(head);
+		grid.set(head, CellGrid.BODY);
+		
+		return last;
+	}
+
+	// Only called while there is somewhere free to put it
+	private int placeFood() {
+		int food = freeCells.random(random);
+		freeCells.remove(food);
+		grid.set(food, CellGrid.FOOD);
+		return food;
+	}
+
+	// One fewer food if there's nowhere left to put another
+	private void replaceFood(int eaten) {
+		int[] replaced = new int[freeCells.size() > 0 ? foods.length : foods.length - 1];
+		int count = 0;
+		for (int food : foods) {
+			if (food != eaten) {
+				replaced[count++] = food;
+			}
+		}
+		if (count < replaced.length) {
+			replaced[count] = placeFood();
+		}
+		foods = replaced;
+	}
+
+	List<Direction> pathToFollow = new ArrayList<>();
+
+	
+	public void actionPerformed() {
+				
+		switch (gameState) {
+			case LIVE:
+				long planningBefore = planningNanos, 
+					 nodesBefore = nodesExpanded;
+				int replansBefore = plans + repairs, 
+					scoreBefore = score;
+				tickFrontierPeak = 0;
+				tickPathLength = 0;
+				if (replay == null) {
+					planNextMove();
+				} else if (replay.hasNext()) {
+					currentDirection = replay.next();
+				} else {
+					gameState = GameState.PAUSED;
+					speedHandler.gamePaused();
+					publish();
+					break;
+				}
+				if (recorder != null) {
+					recorder.record(currentDirection);
+				}
+				int last = move();
+				if (last >= 0) {
+					checkFood(snake, last);
+				}
+				checkCollision();
+				publish();
+				
+				if (history != null) {
+					try {
+						history.append(snake.getHead(), foods[0], snake.size(), currentDirection, 
+								planningNanos - planningBefore);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				Metrics recording = metrics;
+				if (recording != null) {
+					recording.record(planningNanos - planningBefore, nodesExpanded - nodesBefore, tickFrontierPeak, 
+							tickPathLength, plans + repairs - replansBefore, score > scoreBefore);
+				}
+				break;
+			case PAUSED:
+			default:
+				break;
+		}
+	}
+	
+	
+	// Sets the direction for this tick from the pathfinding, searching when the path has run out
+	private void planNextMove() {
+		switch(pathfinding) {
+		case MANUAL:
+			break;
+		default:
+			SearchKernel kernel = SearchKernel.forBoard(WIDTH, HEIGHT);
+			long expandedBefore = kernel.nodesExpanded();
+			kernel.resetFrontierPeak();
+			long start = System.nanoTime();
+			// the path may have been planned through tail that hasn't moved away in time
+			if (!pathToFollow.isEmpty() && !replanner.isNextStepSafe(snake, occupancy, pathToFollow.get(0))) {
+				pathToFollow = replanner.repair(snake, occupancy, pathToFollow);
+				repairs++;
+			}
+			if (pathToFollow.isEmpty() && planner == null) {
+				pathToFollow = pathfinding.find(snake, occupancy, foods, topology);
+				plans++;
+			}
+			planningNanos += System.nanoTime() - start;
+			nodesExpanded += kernel.nodesExpanded() - expandedBefore;
+			tickFrontierPeak = kernel.frontierPeak();
+			if (pathToFollow.isEmpty() && planner != null) {
+				awaitPlan();
+			}
+			tickPathLength = pathToFollow.size();
+
+			if (!pathToFollow.isEmpty()) {
+				currentDirection = pathToFollow.remove(0);					
+			}
+			break;
+		}
+	}
+	
+	// Leaves the search to the planner, waiting no longer than the deadline for it. If the
+	// plan isn't ready in time the snake takes a safe step instead, and the plan is caught up
+	// with the steps taken when it does arrive
+	private void awaitPlan() {
+		if (!planRequested) {
+			planner.submit(version, pathfinding, snake, foods);
+			planRequested = true;
+		}
+		long deadline = System.nanoTime() + planningDeadlineNanos;
+		BackgroundPlanner.Plan plan;
+		while ((plan = planner.await(deadline)) != null) {
+			planRequested = false;
+			plans++;
+			planningNanos += plan.planningNanos;
+			nodesExpanded += plan.nodesExpanded;
+			tickFrontierPeak = Math.max(tickFrontierPeak, plan.frontierPeak);
+			List<Direction> path = catchUp(plan);
+			if (path != null) {
+				pathToFollow = path;
+				return;
+			}
+			planner.submit(version, pathfinding, snake, foods);
+			planRequested = true;
+		}
+		currentDirection = fallbackDirection();
+		fallbackMoves++;
+	}
+	
+	/**
+	 * Returns what is left of a plan once the moves made since it was requested are dropped,
+	 * or null if it can't be followed from here. The body holds the head's last cells, so the
+	 * moves are read off it. Where the snake went another way, or the next step has since been
+	 * blocked, the rest of the plan is repaired and only rejected if that finds no way back.
+	 * A plan towards food that has since been eaten or moved is always rejected.
+	 */
+	private List<Direction> catchUp(BackgroundPlanner.Plan plan) {
+		long behind = version - plan.version;
+		if (behind == 0) {
+			return plan.path;
+		}
+		// foods is replaced whenever any of it changes, so the same array means the same food
+		if (plan.foods != foods || plan.version < resetVersion || behind >= snake.size() 
+				|| snake.get((int) behind) != plan.head) {
+			return null;
+		}
+		
+		List<Direction> path = plan.path;
+		int cell = plan.head;
+		int taken = 0;
+		for (int i = (int) behind - 1; i >= 0; i--) {
+			if (taken == path.size()) {
+				return null;
+			}
+			int next = topology.neighbour(cell, path.get(taken));
+			if (next != snake.get(i)) {
+				repairs++;
+				List<Direction> repaired = replanner.repair(snake, occupancy, cell, path.subList(taken, path.size()));
+				return repaired.isEmpty() ? null : repaired;
+			}
+			cell = next;
+			taken++;
+		}
+		
+		List<Direction> rest = new ArrayList<>(path.subList(taken, path.size()));
+		if (!rest.isEmpty() && !replanner.isNextStepSafe(snake, occupancy, rest.get(0))) {
+			repairs++;
+			rest = replanner.repair(snake, occupancy, rest);
+		}
+		return rest.isEmpty() ? null : rest;
+	}
+	
+	private Direction fallbackDirection() {
+		if (replanner.isNextStepSafe(snake, occupancy, currentDirection)) {
+			return currentDirection;
+		}
+		for (Direction direction : Direction.values()) {
+			if (direction != currentDirection.opposite() && replanner.isNextStepSafe(snake, occupancy, direction)) {
+				return direction;
+			}
+		}
+		return currentDirection;
+	}
+	
+	private void checkFood(SnakeBody snake, int last) {
+		if (entered == CellGrid.FOOD) {
+			snake.pushTail(last);
+			occupancy.occupy(last);
+			freeCells.remove(last);
+			grid.set(last, CellGrid.BODY);
+			score++;
+			view.foodEaten();
+			
+			// nowhere left to put food
+			if (snake.size() == WIDTH * HEIGHT - map.getWalls().length) {
+				gameState = GameState.WON;
+				return;
+			}
+			replaceFood(snake.getHead());
+		}
+	}
+	
+	
+	private void checkCollision() {
+		if (entered == CellGrid.BODY) {
+			gameState = GameState.FAIL;
+		}
+
+		if (gameState == GameState.PAUSED || gameState == GameState.FAIL || gameState == GameState.WON) {
+			speedHandler.gamePaused();
+		}
+	}
+	
+	
+	public void directionPressed(Direction direction) {
+		setCurrentDirectionIfNotAlready(direction);
+	}
+	
+	private void setCurrentDirectionIfNotAlready(Direction direction) {
+		if (direction != currentDirection.opposite()) {
+			currentDirection = direction;
+		}
+	}
+	
+	public void togglePathfinding(Pathfinding selected) {
+		if (pathfinding == selected) {
+			pathfinding = Pathfinding.MANUAL;					
+		} else {
+			pathfinding = selected;
+		}
+		version++;
+		resetVersion = version;
+		updateStates();
+	}
+	
+	public void toggleSpeed() {
+		speedHandler.gameSpeedChanged();
+		updateStates();
+	}
+	
+	// Writes the direction of every tick from now on, for as long as the game lasts
+	public void recordTo(ReplayRecorder recorder) {
+		this.recorder = recorder;
+	}
+	
+	// Appends every tick's state to the history from now on
+	public void recordHistoryTo(HistoryWriter history) {
+		this.history = history;
+	}
+	
+	// Takes directions from the replay instead of pathfinding, pausing when they run out
+	public void replay(ReplayPlayer replay) {
+		this.replay = replay;
+	}
+	
+	public void toggleMetrics() {
+		metrics = metrics == null ? new Metrics() : null;
+	}
+	
+	// the per-tick records, or null while they're switched off
+	public Metrics getMetrics() {
+		return metrics;
+	}
+	
+	public void toggleColorfulMode() {
+		view.toggleColourfulMode();
+	}
+
+
+	public void togglePause() {
+		switch (gameState) {
+		case LIVE:
+			gameState = GameState.PAUSED;
+			speedHandler.gamePaused();
+			break;
+
+		case PAUSED:
+			gameState = GameState.LIVE;
+			speedHandler.gameStarted();
+			break;
+			
+		default:
+			// a new game after one has ended gets a seed of its own
+			if (gameState != GameState.INIT) {
+				seed = random.nextLong();
+			}
+			initGame();
+			gameState = GameState.LIVE;
+			break;
+		}
+		publish();
+	}
+
+
+	/**
+	 * Moves planning onto a worker thread. Each tick waits at most deadlineNanos for the
+	 * plan before falling back to a safe step.
+	 */
+	public void planInBackground(long deadlineNanos) {
+		if (planner == null) {
+			planner = new BackgroundPlanner(topology, map.getWalls());
+		}
+		planningDeadlineNanos = deadlineNanos;
+	}
+
+
+	public long getSeed() {
+		return seed;
+	}
+
+
+	public int getWidth() {
+		return WIDTH;
+	}
+
+
+	public int getHeight() {
+		return HEIGHT;
+	}
+
+
+	public int getScore() {
+		return score;
+	}
+
+
+	// shared, not to be changed
+	public int[] getFoods() {
+		return foods;
+	}
+
+
+	public GameMap getMap() {
+		return map;
+	}
+
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+
+	public SnakeBody getSnake() {
+		return snake;
+	}
+
+
+	public long getPlanningNanos() {
+		return planningNanos;
+	}
+
+
+	public int getPlans() {
+		return plans;
+	}
+
+
+	public int getRepairs() {
+		return repairs;
+	}
+
+
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+
+	public int getFallbackMoves() {
+		return fallbackMoves;
+	}
+}
+
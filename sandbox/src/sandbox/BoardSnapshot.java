@@ -0,0 +1,110 @@
+package sandbox;
+
+import java.util.List;
+
+/**
+ * What the board looked like at the end of a tick, for drawing from any thread. The body is
+ * read straight out of the board's trail of head cells (packed y * width + x, newest last),
+ * which is only ever appended to, so taking a snapshot copies nothing and it never changes
+ * underneath whoever is holding it. The foods and walls are arrays the board never changes either.
+ */
+final class BoardSnapshot {
+
+	private final int width, height;
+	private final int[] trail;
+	private final int head;
+	private final int length;
+	private final int[] foods;
+	private final int[] walls;
+	private final GameState gameState;
+	private final int score;
+	private final List<String> states;
+
+	BoardSnapshot(int width, int height, int[] trail, int head, int length, int[] foods, int[] walls,
+			GameState gameState, int score, List<String> states) {
+		this.width = width;
+		this.height = height;
+		this.trail = trail;
+		this.head = head;
+		this.length = length;
+		this.foods = foods;
+		this.walls = walls;
+		this.gameState = gameState;
+		this.score = score;
+		this.states = states;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	// index 0 is the head, length() - 1 the tail
+	public int get(int index) {
+		return trail[head - index];
+	}
+
+	public int getX(int index) {
+		return get(index) % width;
+	}
+
+	public int getY(int index) {
+		return get(index) / width;
+	}
+
+	/**
+	 * How far the head has moved since an earlier snapshot of the same game, or -1 if they
+	 * can't be compared that way because a new game started or the trail moved to a new array.
+	 */
+	public int movesSince(BoardSnapshot earlier) {
+		return trail == earlier.trail && head >= earlier.head ? head - earlier.head : -1;
+	}
+
+	public int foods() {
+		return foods.length;
+	}
+
+	public int getFoodX(int index) {
+		return foods[index] % width;
+	}
+
+	public int getFoodY(int index) {
+		return foods[index] / width;
+	}
+
+	// whether any food was eaten or put down between the snapshots
+	public boolean foodChangedSince(BoardSnapshot earlier) {
+		return foods != earlier.foods;
+	}
+
+	public int walls() {
+		return walls.length;
+	}
+
+	public int getWallX(int index) {
+		return walls[index] % width;
+	}
+
+	public int getWallY(int index) {
+		return walls[index] / width;
+	}
+
+	public GameState getGameState() {
+		return gameState;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public List<String> getStates() {
+		return states;
+	}
+}
@@ -0,0 +1,40 @@
+package sandbox;
+
+import java.util.Arrays;
+
+/**
+ * What is on each cell of the board, one byte per cell indexed by y * width + x, so the board
+ * can tell what the head has run into with a single lookup however many foods and walls there are.
+ */
+class CellGrid {
+
+	static final byte EMPTY = 0, 
+					  BODY = 1, 
+					  FOOD = 2, 
+					  WALL = 3;
+
+	private final byte[] cells;
+	private final int[] walls;
+
+	public CellGrid(int cellCount, int[] walls) {
+		this.cells = new byte[cellCount];
+		this.walls = walls;
+		clear();
+	}
+
+	// Empties every cell but the walls
+	public void clear() {
+		Arrays.fill(cells, EMPTY);
+		for (int wall : walls) {
+			cells[wall] = WALL;
+		}
+	}
+
+	public byte get(int cell) {
+		return cells[cell];
+	}
+
+	public void set(int cell, byte type) {
+		cells[cell] = type;
+	}
+}
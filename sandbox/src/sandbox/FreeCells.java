@@ -0,0 +1,66 @@
+package sandbox;
+
+import java.util.Random;
+
+/**
+ * The cells of the board the snake isn't on, packed into the front of a dense array with each
+ * cell's place in it kept alongside. Removing a cell swaps the last free cell into its place,
+ * so adding, removing and drawing a uniformly random free cell are all O(1) however full the
+ * board is.
+ */
+class FreeCells {
+
+	private final int[] cells;
+	// where each cell is in cells, free or not; the free ones are those before size
+	private final int[] position;
+	private int size;
+
+	public FreeCells(int cellCount) {
+		this.cells = new int[cellCount];
+		this.position = new int[cellCount];
+		clear();
+	}
+
+	// Frees every cell, in order, so the same moves always leave the same cells in the same places
+	public void clear() {
+		for (int cell = 0; cell < cells.length; cell++) {
+			cells[cell] = cell;
+			position[cell] = cell;
+		}
+		size = cells.length;
+	}
+
+	// Does nothing if the cell is already taken
+	public void remove(int cell) {
+		int at = position[cell];
+		if (at >= size) {
+			return;
+		}
+		int last = cells[--size];
+		cells[at] = last;
+		position[last] = at;
+		cells[size] = cell;
+		position[cell] = size;
+	}
+
+	// Does nothing if the cell is already free
+	public void add(int cell) {
+		int at = position[cell];
+		if (at < size) {
+			return;
+		}
+		int first = cells[size];
+		cells[at] = first;
+		position[first] = at;
+		cells[size] = cell;
+		position[cell] = size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int random(Random random) {
+		return cells[random.nextInt(size)];
+	}
+}
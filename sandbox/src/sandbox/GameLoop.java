@@ -0,0 +1,119 @@
+package sandbox;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the game on its own thread, so its speed no longer depends on timer resolution or
+ * how long painting takes. Ticks come at a fixed rate for the current Speed, or back to back
+ * when it's unlimited. The view draws whichever snapshot is newest when the display
+ * refreshes, so ticks in between are never painted. Input goes through execute() and runs
+ * between ticks, so only this thread ever touches the board.
+ */
+class GameLoop implements GameSpeedHandler, Executor {
+
+	static final int DEFAULT_TICKS_PER_FRAME = 64;
+	// an unlimited game waits for plans instead of taking fallback steps
+	private final long UNLIMITED_PLANNING_DEADLINE = TimeUnit.SECONDS.toNanos(1);
+
+	private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+	// the most ticks run in one go before input is checked again, and how far a late loop catches up
+	private final int ticksPerFrame;
+	private final Thread thread;
+	private Board board;
+	private volatile Speed speed = Speed.NORMAL;
+	private volatile boolean running;
+
+	public GameLoop(int ticksPerFrame) {
+		if (ticksPerFrame < 1) {
+			throw new IllegalArgumentException("Ticks per frame must be at least 1, not " + ticksPerFrame);
+		}
+		this.ticksPerFrame = ticksPerFrame;
+		this.thread = new Thread(this::run, "snake-game");
+		thread.setDaemon(true);
+	}
+
+	void setBoard(Board board) {
+		this.board = board;
+		board.planInBackground(planningDeadline());
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	// Runs the command on the game thread before its next tick
+	@Override
+	public void execute(Runnable command) {
+		commands.add(command);
+		LockSupport.unpark(thread);
+	}
+
+	private void run() {
+		long nextTick = System.nanoTime();
+		while (true) {
+			for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+				command.run();
+			}
+			if (!running) {
+				LockSupport.park(this);
+				nextTick = System.nanoTime();
+				continue;
+			}
+
+			long period = speed.tickNanos;
+			if (period == 0) {
+				for (int i = 0; i < ticksPerFrame && running; i++) {
+					board.actionPerformed();
+				}
+				nextTick = System.nanoTime();
+				continue;
+			}
+
+			long now = System.nanoTime();
+			for (int i = 0; i < ticksPerFrame && running && nextTick - now <= 0; i++) {
+				board.actionPerformed();
+				nextTick += period;
+			}
+			// too far behind to catch up, skip the missed ticks rather than rushing through them
+			if (nextTick - now <= 0) {
+				nextTick = now + period;
+			}
+			LockSupport.parkNanos(this, nextTick - System.nanoTime());
+		}
+	}
+
+	// half a tick, so a slow plan doesn't make the tick late
+	private long planningDeadline() {
+		return speed == Speed.UNLIMITED ? UNLIMITED_PLANNING_DEADLINE : speed.tickNanos / 2;
+	}
+
+	@Override
+	public void gameStarted() {
+		running = true;
+	}
+
+	@Override
+	public void gamePaused() {
+		running = false;
+	}
+
+	@Override
+	public void gameSpeedChanged() {
+		speed = speed.next();
+		board.planInBackground(planningDeadline());
+	}
+
+	@Override
+	public boolean isFast() {
+		return speed != Speed.NORMAL;
+	}
+
+	@Override
+	public boolean isUnlimited() {
+		return speed == Speed.UNLIMITED;
+	}
+}
@@ -0,0 +1,196 @@
+package sandbox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * What a game is played on: the board size, the wall cells inside it (packed y * width + x,
+ * in order) and how many pieces of food are out at once. Maps are text files, one line per
+ * row, with # for a wall and any other character for an empty cell. Shorter rows are padded
+ * with empty cells. Lines starting with ; are comments, and a line "foods N" sets the food.
+ * <p>
+ * Random and loaded maps have every cell the snake can't get to from where it starts walled
+ * in, so food never turns up somewhere no search can reach.
+ */
+final class GameMap {
+
+	static final char WALL = '#';
+
+	private final int width, height;
+	private final int[] walls;
+	private final int foods;
+
+	GameMap(int width, int height, int[] walls, int foods) {
+		if (foods < 1) {
+			throw new IllegalArgumentException("A map needs at least one food, not " + foods);
+		}
+		this.width = width;
+		this.height = height;
+		this.walls = walls;
+		this.foods = foods;
+	}
+
+	static GameMap empty(int width, int height) {
+		return new GameMap(width, height, new int[0], 1);
+	}
+
+	/**
+	 * Walls on about wallPercent of the board's cells, picked by the seed. The row the snake
+	 * starts on is left clear, which also keeps most of the board joined up; whatever is cut
+	 * off from it is walled in.
+	 */
+	static GameMap random(int width, int height, int foods, int wallPercent, long seed) {
+		Random random = new Random(seed);
+		int[] walls = new int[width * height];
+		int count = 0;
+		for (int cell = 0; cell < width * height; cell++) {
+			if (cell / width != Board.STARTING_COORD && random.nextInt(100) < wallPercent) {
+				walls[count++] = cell;
+			}
+		}
+		return new GameMap(width, height, sealPockets(width, height, Arrays.copyOf(walls, count)), foods);
+	}
+
+	static GameMap load(Path file) throws IOException {
+		List<String> rows = new ArrayList<>();
+		int foods = 1;
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			if (line.startsWith(";")) {
+				continue;
+			} else if (line.startsWith("foods ")) {
+				try {
+					foods = Integer.parseInt(line.substring("foods ".length()).trim());
+				} catch (NumberFormatException e) {
+					throw new IOException(file + " has a bad food count: " + line, e);
+				}
+			} else {
+				rows.add(line);
+			}
+		}
+		// trailing blank lines aren't rows
+		while (!rows.isEmpty() && rows.get(rows.size() - 1).isEmpty()) {
+			rows.remove(rows.size() - 1);
+		}
+
+		int width = rows.stream().mapToInt(String::length).max().orElse(0);
+		int height = rows.size();
+		int[] walls = new int[width * height];
+		int count = 0;
+		for (int y = 0; y < height; y++) {
+			String row = rows.get(y);
+			for (int x = 0; x < row.length(); x++) {
+				if (row.charAt(x) == WALL) {
+					walls[count++] = y * width + x;
+				}
+			}
+		}
+		return new GameMap(width, height, sealPockets(width, height, Arrays.copyOf(walls, count)), foods);
+	}
+
+	// Walls in every free cell that can't be reached from where the snake starts, keeping the
+	// walls in order. Maps where the snake can't start at all are left for Board to turn down
+	private static int[] sealPockets(int width, int height, int[] walls) {
+		int start = Board.STARTING_COORD * width + Board.STARTING_COORD;
+		if (walls.length == 0 || width <= Board.STARTING_COORD || height <= Board.STARTING_COORD) {
+			return walls;
+		}
+		boolean[] blocked = new boolean[width * height];
+		for (int wall : walls) {
+			blocked[wall] = true;
+		}
+		if (blocked[start]) {
+			return walls;
+		}
+
+		int[] frontier = new int[width * height];
+		int first = 0, last = 0;
+		frontier[last++] = start;
+		blocked[start] = true;
+		while (first < last) {
+			int cell = frontier[first++];
+			int x = cell % width, 
+				y = cell / width;
+			if (x > 0 && !blocked[cell - 1]) {
+				blocked[cell - 1] = true;
+				frontier[last++] = cell - 1;
+			}
+			if (x < width - 1 && !blocked[cell + 1]) {
+				blocked[cell + 1] = true;
+				frontier[last++] = cell + 1;
+			}
+			if (y > 0 && !blocked[cell - width]) {
+				blocked[cell - width] = true;
+				frontier[last++] = cell - width;
+			}
+			if (y < height - 1 && !blocked[cell + width]) {
+				blocked[cell + width] = true;
+				frontier[last++] = cell + width;
+			}
+		}
+		if (last + walls.length == width * height) {
+			return walls;
+		}
+
+		// every cell the fill didn't reach, walls included, is a wall now
+		boolean[] reached = new boolean[width * height];
+		for (int i = 0; i < last; i++) {
+			reached[frontier[i]] = true;
+		}
+		int[] sealed = new int[width * height - last];
+		int count = 0;
+		for (int cell = 0; cell < width * height; cell++) {
+			if (!reached[cell]) {
+				sealed[count++] = cell;
+			}
+		}
+		return sealed;
+	}
+
+	/**
+	 * The map in -Dsnek.map=file if there is one, otherwise an empty width x height board, or
+	 * one with -Dsnek.walls=percent random walls from the seed. -Dsnek.foods=N overrides how
+	 * many pieces of food there are.
+	 */
+	static GameMap fromProperties(int width, int height, long seed) throws IOException {
+		String file = System.getProperty("snek.map");
+		int wallPercent = Integer.getInteger("snek.walls", 0);
+		GameMap map;
+		if (file != null) {
+			map = load(Paths.get(file));
+		} else if (wallPercent > 0) {
+			map = random(width, height, 1, wallPercent, seed);
+		} else {
+			map = empty(width, height);
+		}
+		Integer foods = Integer.getInteger("snek.foods");
+		return foods == null ? map : map.withFoods(foods);
+	}
+
+	GameMap withFoods(int foods) {
+		return new GameMap(width, height, walls, foods);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	// shared, not to be changed
+	public int[] getWalls() {
+		return walls;
+	}
+
+	public int getFoods() {
+		return foods;
+	}
+}
@@ -0,0 +1,52 @@
+package sandbox;
+
+class GameResult {
+
+	final Pathfinding pathfinding;
+	final long seed;
+	final long ticks;
+	final int score;
+	final int length;
+	final boolean died;
+	final long planningNanos;
+	final int plans;
+	final int repairs;
+	final long nodesExpanded;
+	final long elapsedNanos;
+	final long allocatedBytes;
+
+	public GameResult(Pathfinding pathfinding, long seed, long ticks, int score, int length, boolean died,
+			long planningNanos, int plans, int repairs, long nodesExpanded, long elapsedNanos, long allocatedBytes) {
+		this.pathfinding = pathfinding;
+		this.seed = seed;
+		this.ticks = ticks;
+		this.score = score;
+		this.length = length;
+		this.died = died;
+		this.planningNanos = planningNanos;
+		this.plans = plans;
+		this.repairs = repairs;
+		this.nodesExpanded = nodesExpanded;
+		this.elapsedNanos = elapsedNanos;
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	public double ticksPerSecond() {
+		return elapsedNanos == 0 ? 0 : ticks * 1_000_000_000.0 / elapsedNanos;
+	}
+
+	public double nodesPerPlan() {
+		return plans == 0 ? 0 : (double) nodesExpanded / plans;
+	}
+
+	public double bytesPerTick() {
+		return ticks == 0 ? 0 : (double) allocatedBytes / ticks;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s seed=%d ticks=%d score=%d length=%d %s planning=%.1fms plans=%d repairs=%d nodes/plan=%.1f %.0f ticks/s %.0f B/tick",
+				pathfinding, seed, ticks, score, length, died ? "died" : "survived",
+				planningNanos / 1_000_000.0, plans, repairs, nodesPerPlan(), ticksPerSecond(), bytesPerTick());
+	}
+}
@@ -1,9 +1,13 @@
-package sandbox;
-
-public interface GameSpeedHandler {
-
-	void gameStarted();
-	void gamePaused();
-	void gameSpeedChanged();
-	boolean isFast();
-}
+package sandbox;
+
+public interface GameSpeedHandler {
+
+	void gameStarted();
+	void gamePaused();
+	void gameSpeedChanged();
+	boolean isFast();
+
+	default boolean isUnlimited() {
+		return false;
+	}
+}
@@ -1,5 +1,5 @@
-package sandbox;
-
-public enum GameState {	
-	LIVE, PAUSED, FAIL, INIT
-}
+package sandbox;
+
+public enum GameState {	
+	LIVE, PAUSED, FAIL, WON, INIT
+}
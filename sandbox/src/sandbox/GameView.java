@@ -0,0 +1,8 @@
+package sandbox;
+
+public interface GameView {
+
+	void init(int startingSnakeLength, int width, int height);
+	void foodEaten();
+	void toggleColourfulMode();
+}
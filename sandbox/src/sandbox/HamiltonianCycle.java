@@ -0,0 +1,135 @@
+package sandbox;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cycle through every cell of the board, as the position of each cell along it and the
+ * cell at each position. Boards with an even number of rows serpentine along the rows and
+ * come back up column 0; otherwise (an even number of columns) the same thing turned on its
+ * side. Boards with an odd number of cells have no such cycle.
+ * <p>
+ * A snake whose body lies in cycle order can never trap itself following the cycle, and can
+ * safely skip ahead of it as long as it doesn't overtake its own tail; see {@link #nextCell}.
+ */
+class HamiltonianCycle {
+
+	private static final Map<Long, HamiltonianCycle> CYCLES = new ConcurrentHashMap<>();
+
+	// room left between head and tail after a shortcut, for growing while the tail stays put
+	private final int GROWTH_MARGIN = 3;
+
+	private final int size;
+	private final Topology topology;
+	private final int[] position;
+	private final int[] cells;
+
+	private HamiltonianCycle(int width, int height) {
+		this.size = width * height;
+		this.topology = Topology.forBoard(width, height);
+		this.position = new int[size];
+		this.cells = new int[size];
+
+		int next = 0;
+		cells[next++] = 0;
+		if (height % 2 == 0) {
+			for (int y = 0; y < height; y++) {
+				for (int i = 1; i < width; i++) {
+					int x = y % 2 == 0 ? i : width - i;
+					cells[next++] = y * width + x;
+				}
+			}
+			for (int y = height - 1; y > 0; y--) {
+				cells[next++] = y * width;
+			}
+		} else {
+			for (int x = 0; x < width; x++) {
+				for (int i = 1; i < height; i++) {
+					int y = x % 2 == 0 ? i : height - i;
+					cells[next++] = y * width + x;
+				}
+			}
+			for (int x = width - 1; x > 0; x--) {
+				cells[next++] = x;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			position[cells[i]] = i;
+		}
+	}
+
+	/**
+	 * The cycle for a board of this size, or null if there isn't one.
+	 * Cycles are immutable, so they're built once and shared.
+	 */
+	static HamiltonianCycle forBoard(int width, int height) {
+		if ((width * height) % 2 != 0 || width < 2 || height < 2) {
+			return null;
+		}
+		return CYCLES.computeIfAbsent((long) width << 32 | height, key -> new HamiltonianCycle(width, height));
+	}
+
+	// how many steps along the cycle it is from one cell to another, in either direction round it
+	int distance(int from, int to, boolean reversed) {
+		int steps = reversed ? position[from] - position[to] : position[to] - position[from];
+		return steps < 0 ? steps + size : steps;
+	}
+
+	int successor(int cell, boolean reversed) {
+		int next = reversed ? position[cell] - 1 : position[cell] + 1;
+		return cells[next < 0 ? next + size : next % size];
+	}
+
+	/**
+	 * The cell the head should move to next, or -1 if the snake is in the way of the cycle
+	 * (it has been steered some other way, so its body isn't in cycle order).
+	 * While the snake is short it takes the neighbour furthest along the cycle that neither
+	 * passes the next food round the cycle nor comes too close to the tail; once it covers half the board it
+	 * just follows the cycle. Either way every tick is O(1), as the body's span round the cycle
+	 * is kept up by {@link SnakeBody} as it moves.
+	 */
+	int nextCell(SnakeBody snake, Occupancy occupancy, int[] foods) {
+		int head = snake.getHead();
+		int tail = snake.getTail();
+		// go round whichever way the snake is already going
+		boolean reversed = snake.size() > 1 
+				&& distance(snake.get(1), head, true) < distance(snake.get(1), head, false);
+
+		int next = successor(head, reversed);
+		boolean nextIsFree = !occupancy.isOccupied(next) || next == tail;
+		if (snake.size() * 2 >= size || !isInCycleOrder(snake, reversed)) {
+			return nextIsFree ? next : -1;
+		}
+
+		int furthestSkip = distance(head, tail, reversed) - 1 - GROWTH_MARGIN;
+		for (int food : foods) {
+			furthestSkip = Math.min(furthestSkip, distance(head, food, reversed));
+		}
+		int best = nextIsFree ? next : -1;
+		int bestSkip = 1;
+		for (Direction direction : Direction.values()) {
+			int cell = topology.neighbour(head, direction);
+			if (cell < 0 || occupancy.isOccupied(cell)) {
+				continue;
+			}
+			int skip = distance(head, cell, reversed);
+			if (skip > bestSkip && skip <= furthestSkip) {
+				best = cell;
+				bestSkip = skip;
+			}
+		}
+		return best;
+	}
+
+	// every segment is further round the cycle than the one behind it, without lapping. Segments
+	// are on different cells, so every step is at least 1, and the steps add up to the head's
+	// distance from the tail plus a cycle per lap: they're in order when they come to less than
+	// one cycle. Going backwards each step is the rest of the cycle from the forward one
+	private boolean isInCycleOrder(SnakeBody snake, boolean reversed) {
+		long span = snake.cycleSpan(this);
+		if (reversed) {
+			span = (long) (snake.size() - 1) * size - span;
+		}
+		return span < size;
+	}
+}
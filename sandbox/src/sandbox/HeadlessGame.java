@@ -0,0 +1,156 @@
+package sandbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Runs a {@link Board} without a display or timer, stepping it as fast as the CPU allows.
+ * The board logic is the one the Swing game drives, but planning here runs on the tick
+ * itself. The windowed game plans on a worker thread against a wall-clock deadline and takes
+ * a fallback step whenever a plan is late, so the two only match while every plan arrives in
+ * time. A recorded replay plays back the same either way.
+ */
+class HeadlessGame implements GameView, GameSpeedHandler {
+
+	private final long DEFAULT_MAX_TICKS = 1_000_000;
+
+	private final Pathfinding pathfinding;
+	private final long seed;
+	private final Board board;
+	private int foodEaten;
+	private ReplayRecorder recorder;
+
+	public HeadlessGame(Pathfinding pathfinding, long seed) {
+		this(pathfinding, seed, Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+	}
+
+	public HeadlessGame(Pathfinding pathfinding, long seed, int width, int height) {
+		this(pathfinding, seed, GameMap.empty(width, height));
+	}
+
+	public HeadlessGame(Pathfinding pathfinding, long seed, GameMap map) {
+		this.pathfinding = pathfinding;
+		this.seed = seed;
+		this.board = new Board(this, this, seed, map);
+		board.togglePathfinding(pathfinding);
+	}
+
+	// Records the next game played to the file
+	public void recordTo(Path file) throws IOException {
+		recorder = new ReplayRecorder(file, seed, board.getMap(), pathfinding);
+		board.recordTo(recorder);
+	}
+
+	// Adds the next game played to the history as gameId
+	public void recordHistoryTo(HistoryWriter history, long gameId) {
+		history.startGame(gameId, pathfinding);
+		board.recordHistoryTo(history);
+	}
+
+	// Plays the recorded game back through the board instead of its pathfinding
+	public GameResult replay(ReplayPlayer replay) {
+		board.replay(replay);
+		return run(replay.ticks());
+	}
+
+	public GameResult run() {
+		return run(DEFAULT_MAX_TICKS);
+	}
+
+	/**
+	 * Plays one game until the snake dies or maxTicks have been stepped
+	 * (a Hamiltonian cycle never dies, so there always needs to be a limit).
+	 */
+	public GameResult run(long maxTicks) {
+		board.togglePause();
+
+		long ticks = 0;
+		long allocatedAtStart = allocatedBytes();
+		long start = System.nanoTime();
+		while (board.getGameState() == GameState.LIVE && ticks < maxTicks) {
+			board.actionPerformed();
+			ticks++;
+		}
+		long elapsedNanos = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedAtStart;
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			recorder = null;
+		}
+
+		return new GameResult(pathfinding, seed, ticks, foodEaten, board.getSnake().size(),
+				board.getGameState() == GameState.FAIL, board.getPlanningNanos(), board.getPlans(),
+				board.getRepairs(), board.getNodesExpanded(), elapsedNanos, allocated);
+	}
+
+	// Bytes allocated by this thread so far, or 0 where the JVM can't say
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof ThreadMXBean) {
+			return ((ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+		}
+		return 0;
+	}
+
+	Board getBoard() {
+		return board;
+	}
+
+	@Override
+	public void init(int startingSnakeLength, int width, int height) {
+		foodEaten = 0;
+	}
+
+	@Override
+	public void foodEaten() {
+		foodEaten++;
+	}
+
+	@Override
+	public void toggleColourfulMode() {
+	}
+
+	@Override
+	public void gameStarted() {
+	}
+
+	@Override
+	public void gamePaused() {
+	}
+
+	@Override
+	public void gameSpeedChanged() {
+	}
+
+	@Override
+	public boolean isFast() {
+		return true;
+	}
+
+	/**
+	 * Usage: HeadlessGame [pathfinding] [seed] [maxTicks] [width] [height] [replayFile]
+	 * <p>
+	 * Takes the map from -Dsnek.map, -Dsnek.walls and -Dsnek.foods as {@link GameMap#fromProperties} does.
+	 */
+	public static void main(String[] args) throws IOException {
+		Pathfinding pathfinding = args.length > 0 ? Pathfinding.valueOf(args[0]) : Pathfinding.BFS;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+		int width = args.length > 3 ? Integer.parseInt(args[3]) : Board.DEFAULT_WIDTH;
+		int height = args.length > 4 ? Integer.parseInt(args[4]) : width;
+		HeadlessGame game = new HeadlessGame(pathfinding, seed, GameMap.fromProperties(width, height, seed));
+		if (args.length > 5) {
+			game.recordTo(Paths.get(args[5]));
+		}
+		GameResult result = args.length > 2 ? game.run(Long.parseLong(args[2])) : game.run();
+		System.out.println(result);
+	}
+}
@@ -0,0 +1,34 @@
+package sandbox;
+
+/**
+ * Estimates of the remaining distance to the goal for A*, over packed cell indices.
+ */
+enum Heuristic {
+	// of two cells with equal f prefer the one nearer the goal, so the search runs on along one
+	// shortest path instead of filling the rectangle between start and goal
+	MANHATTAN {
+		@Override
+		int tieBreak(int start, int cell, int goal, int width) {
+			return estimate(cell, goal, width);
+		}
+	},
+	// Manhattan, but of two cells with equal f prefer the one nearer the straight line from start to goal
+	STRAIGHT_LINE {
+		@Override
+		int tieBreak(int start, int cell, int goal, int width) {
+			int dx1 = cell % width - goal % width;
+			int dy1 = cell / width - goal / width;
+			int dx2 = start % width - goal % width;
+			int dy2 = start / width - goal / width;
+			return Math.abs(dx1 * dy2 - dx2 * dy1);
+		}
+	};
+
+	int estimate(int cell, int goal, int width) {
+		return Math.abs(goal % width - cell % width)
+				+ Math.abs(goal / width - cell / width);
+	}
+
+	// lower is expanded first among cells with the same estimated total cost
+	abstract int tieBreak(int start, int cell, int goal, int width);
+}
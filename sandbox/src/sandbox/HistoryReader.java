@@ -0,0 +1,241 @@
+package sandbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maps every segment {@link HistoryWriter}s left in a directory read-only and reads records
+ * straight out of the mappings, so the heap only holds one small entry per game however many
+ * ticks there are. Records are numbered across all segments in file name order, which keeps
+ * each game's ticks together and in order, as a game is only ever written by one writer.
+ */
+class HistoryReader {
+
+	interface Visitor {
+		void visit(long gameId, int tick, int head, int food, int length, Direction direction, long planNanos,
+				Pathfinding strategy);
+	}
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final Pathfinding[] STRATEGIES = Pathfinding.values();
+
+	private final List<ByteBuffer> segments = new ArrayList<>();
+	// the number of the first record in each segment, with the total on the end
+	private final long[] starts;
+	// first record and tick count of each game
+	private final Map<Long, long[]> games = new HashMap<>();
+
+	public HistoryReader(Path directory) throws IOException {
+		List<Path> files;
+		try (Stream<Path> listing = Files.list(directory)) {
+			files = listing
+				.filter(e -> e.getFileName().toString().endsWith(HistoryWriter.SUFFIX))
+				.sorted()
+				.collect(Collectors.toList());
+		}
+
+		starts = new long[files.size() + 1];
+		for (int i = 0; i < files.size(); i++) {
+			ByteBuffer segment = map(files.get(i));
+			segments.add(segment);
+			starts[i + 1] = starts[i] + segment.getInt(HistoryWriter.COUNT_AT);
+		}
+
+		// a game's records are all together, so the map only needs looking at when the id changes
+		long[] game = null;
+		long current = 0;
+		for (int s = 0; s < segments.size(); s++) {
+			ByteBuffer segment = segments.get(s);
+			for (int i = 0, count = (int) (starts[s + 1] - starts[s]); i < count; i++) {
+				long gameId = segment.getLong(HistoryWriter.HEADER_SIZE + i * HistoryWriter.RECORD_SIZE + HistoryWriter.GAME);
+				if (game == null || gameId != current) {
+					current = gameId;
+					game = games.computeIfAbsent(gameId, e -> new long[2]);
+					if (game[1] == 0) {
+						game[0] = starts[s] + i;
+					}
+				}
+				game[1]++;
+			}
+		}
+	}
+
+	private static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (segment.capacity() < HistoryWriter.HEADER_SIZE || segment.getInt(HistoryWriter.MAGIC_AT) != HistoryWriter.MAGIC) {
+				throw new IOException(file + " isn't a history segment");
+			}
+			if (segment.getInt(HistoryWriter.VERSION_AT) != HistoryWriter.VERSION) {
+				throw new IOException(file + " is a version " + segment.getInt(HistoryWriter.VERSION_AT) 
+						+ " segment, only version " + HistoryWriter.VERSION + " can be read");
+			}
+			// segments grow a window at a time, the count says how much of one is filled
+			long complete = (segment.capacity() - HistoryWriter.HEADER_SIZE) / HistoryWriter.RECORD_SIZE;
+			if (segment.getInt(HistoryWriter.COUNT_AT) > complete) {
+				throw new IOException(file + " is shorter than its record count");
+			}
+			return segment;
+		}
+	}
+
+	public long size() {
+		return starts[starts.length - 1];
+	}
+
+	public Set<Long> games() {
+		return Collections.unmodifiableSet(games.keySet());
+	}
+
+	public long ticks(long gameId) {
+		long[] game = games.get(gameId);
+		return game == null ? 0 : game[1];
+	}
+
+	// The number of the record for the game's tick, or -1 if there isn't one
+	public long find(long gameId, int tick) {
+		long[] game = games.get(gameId);
+		if (game == null || tick < 0 || tick >= game[1]) {
+			return -1;
+		}
+		return game[0] + tick;
+	}
+
+	public long gameId(long record) {
+		return segment(record).getLong(offset(record) + HistoryWriter.GAME);
+	}
+
+	public int tick(long record) {
+		return segment(record).getInt(offset(record) + HistoryWriter.TICK);
+	}
+
+	public int head(long record) {
+		return segment(record).getInt(offset(record) + HistoryWriter.HEAD);
+	}
+
+	public int food(long record) {
+		return segment(record).getInt(offset(record) + HistoryWriter.FOOD);
+	}
+
+	public int length(long record) {
+		return segment(record).getInt(offset(record) + HistoryWriter.LENGTH);
+	}
+
+	public Direction direction(long record) {
+		return DIRECTIONS[segment(record).get(offset(record) + HistoryWriter.DIRECTION)];
+	}
+
+	public long planNanos(long record) {
+		return segment(record).getInt(offset(record) + HistoryWriter.PLAN_NANOS);
+	}
+
+	public Pathfinding strategy(long record) {
+		return STRATEGIES[segment(record).get(offset(record) + HistoryWriter.STRATEGY)];
+	}
+
+	// Visits every record in order, a segment at a time
+	public void scan(Visitor visitor) {
+		for (int i = 0; i < segments.size(); i++) {
+			scan(i, 0, (int) (starts[i + 1] - starts[i]), visitor);
+		}
+	}
+
+	public void scan(long gameId, Visitor visitor) {
+		long[] game = games.get(gameId);
+		if (game == null) {
+			return;
+		}
+		for (long record = game[0], end = game[0] + game[1]; record < end; ) {
+			int index = segmentIndex(record);
+			int first = (int) (record - starts[index]);
+			int count = (int) Math.min(end - record, starts[index + 1] - record);
+			scan(index, first, count, visitor);
+			record += count;
+		}
+	}
+
+	private void scan(int index, int first, int count, Visitor visitor) {
+		ByteBuffer segment = segments.get(index);
+		for (int i = first, end = first + count; i < end; i++) {
+			int at = HistoryWriter.HEADER_SIZE + i * HistoryWriter.RECORD_SIZE;
+			visitor.visit(
+					segment.getLong(at + HistoryWriter.GAME),
+					segment.getInt(at + HistoryWriter.TICK),
+					segment.getInt(at + HistoryWriter.HEAD),
+					segment.getInt(at + HistoryWriter.FOOD),
+					segment.getInt(at + HistoryWriter.LENGTH),
+					DIRECTIONS[segment.get(at + HistoryWriter.DIRECTION)],
+					segment.getInt(at + HistoryWriter.PLAN_NANOS),
+					STRATEGIES[segment.get(at + HistoryWriter.STRATEGY)]);
+		}
+	}
+
+	private ByteBuffer segment(long record) {
+		return segments.get(segmentIndex(record));
+	}
+
+	private int offset(long record) {
+		return HistoryWriter.HEADER_SIZE + (int) (record - starts[segmentIndex(record)]) * HistoryWriter.RECORD_SIZE;
+	}
+
+	private int segmentIndex(long record) {
+		if (record < 0 || record >= size()) {
+			throw new IndexOutOfBoundsException("Record " + record + " of " + size());
+		}
+		int low = 0, 
+			high = segments.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (starts[middle] <= record) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Usage: HistoryReader directory [gameId]
+	 * <p>
+	 * Sums up every strategy's ticks in the directory, or prints each tick of one game.
+	 */
+	public static void main(String[] args) throws IOException {
+		HistoryReader history = new HistoryReader(Paths.get(args[0]));
+		if (args.length > 1) {
+			history.scan(Long.parseLong(args[1]), (gameId, tick, head, food, length, direction, planNanos, strategy) -> 
+				System.out.printf("%d %s tick=%d head=%d food=%d length=%d %s plan=%dns%n", 
+						gameId, strategy, tick, head, food, length, direction, planNanos));
+			return;
+		}
+
+		long[] ticks = new long[STRATEGIES.length];
+		long[] planNanos = new long[STRATEGIES.length];
+		int[] longest = new int[STRATEGIES.length];
+		history.scan((gameId, tick, head, food, length, direction, plan, strategy) -> {
+			ticks[strategy.ordinal()]++;
+			planNanos[strategy.ordinal()] += plan;
+			longest[strategy.ordinal()] = Math.max(longest[strategy.ordinal()], length);
+		});
+		System.out.printf("%d ticks from %d games in %d segments%n", history.size(), history.games().size(), history.segments.size());
+		for (Pathfinding strategy : STRATEGIES) {
+			if (ticks[strategy.ordinal()] > 0) {
+				System.out.printf("%-17s %12d ticks %10.2f plan us/tick %8d longest%n", strategy, ticks[strategy.ordinal()],
+						planNanos[strategy.ordinal()] / 1_000.0 / ticks[strategy.ordinal()], longest[strategy.ordinal()]);
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package sandbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends one fixed-width record per tick to memory-mapped segment files, for a single thread.
+ * Each worker gets a writer of its own, named so its segments sort together, and
+ * {@link HistoryReader} reads every writer's segments in a directory back.
+ * <p>
+ * A segment starts with a header the size of a record (magic, version, how many records
+ * follow), then up to SEGMENT_RECORDS records of: game id (long), tick, head cell, first food cell,
+ * length (ints), plan time in ns (int, saturating), direction ordinal and strategy ordinal
+ * (bytes), padded to 32 bytes. The record count is written after every record, so a segment
+ * is readable up to its last complete record even if the writer never closes.
+ * <p>
+ * Records are mapped a window of WINDOW_RECORDS at a time, each new window growing the file,
+ * so a short run leaves at most a window of unused space at the end of its last segment.
+ * Files are never cut back to their records: a mapped file can't be truncated on Windows, and
+ * closing the channel doesn't unmap it. The header's count is what readers go by.
+ */
+class HistoryWriter implements Closeable {
+
+	static final int MAGIC = 0x534E4B48; // "SNKH"
+	static final int VERSION = 1;
+	static final int RECORD_SIZE = 32;
+	static final int HEADER_SIZE = RECORD_SIZE;
+	static final int SEGMENT_RECORDS = 1 << 20;
+	static final int WINDOW_RECORDS = 1 << 15;
+	static final String SUFFIX = ".hist";
+	// header fields
+	static final int MAGIC_AT = 0, VERSION_AT = 4, COUNT_AT = 8;
+	// record fields
+	static final int GAME = 0, TICK = 8, HEAD = 12, FOOD = 16, LENGTH = 20, PLAN_NANOS = 24, DIRECTION = 28, STRATEGY = 29;
+
+	private final Path directory;
+	private final String name;
+	private int segments;
+	private FileChannel channel;
+	private MappedByteBuffer header;
+	private MappedByteBuffer window;
+	// the segment's record the window starts at
+	private int windowStart;
+	private int records;
+	private long gameId;
+	private byte strategy;
+	private int tick;
+
+	public HistoryWriter(Path directory, String name) {
+		this.directory = directory;
+		this.name = name;
+	}
+
+	// Records from here on belong to this game, starting from tick 0
+	public void startGame(long gameId, Pathfinding strategy) {
+		this.gameId = gameId;
+		this.strategy = (byte) strategy.ordinal();
+		this.tick = 0;
+	}
+
+	public void append(int head, int food, int length, Direction direction, long planNanos) throws IOException {
+		if (header == null || records == SEGMENT_RECORDS) {
+			nextSegment();
+		}
+		if (records == windowStart + WINDOW_RECORDS) {
+			nextWindow();
+		}
+		int at = (records - windowStart) * RECORD_SIZE;
+		window.putLong(at + GAME, gameId)
+			.putInt(at + TICK, tick++)
+			.putInt(at + HEAD, head)
+			.putInt(at + FOOD, food)
+			.putInt(at + LENGTH, length)
+			.putInt(at + PLAN_NANOS, (int) Math.min(Integer.MAX_VALUE, planNanos))
+			.put(at + DIRECTION, (byte) direction.ordinal())
+			.put(at + STRATEGY, strategy);
+		records++;
+		header.putInt(COUNT_AT, records);
+	}
+
+	private void nextSegment() throws IOException {
+		closeSegment();
+		Path file = directory.resolve(String.format("%s-%05d%s", name, segments++, SUFFIX));
+		channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.putInt(MAGIC_AT, MAGIC)
+			.putInt(VERSION_AT, VERSION)
+			.putInt(COUNT_AT, 0);
+		records = 0;
+		nextWindow();
+	}
+
+	// mapping past the end of the file grows it to fit
+	private void nextWindow() throws IOException {
+		windowStart = records;
+		window = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) records * RECORD_SIZE, 
+				(long) WINDOW_RECORDS * RECORD_SIZE);
+	}
+
+	private void closeSegment() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		channel.close();
+		channel = null;
+		header = null;
+		window = null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeSegment();
+	}
+}
@@ -0,0 +1,102 @@
+package sandbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One record per tick for the last CAPACITY ticks, kept in a ring of preallocated arrays so
+ * recording allocates nothing. The board's thread records; anything reading takes a copy of
+ * the window under the same lock. While metrics are off the board holds none and records nothing.
+ */
+class Metrics {
+
+	enum Metric {
+		PLAN_NANOS(true),
+		NODES_EXPANDED(true),
+		FRONTIER_PEAK(true),
+		PATH_LENGTH(true),
+		REPLANS(false),
+		FOOD_EATEN(false);
+
+		// only ticks that searched count towards percentiles, the rest would all be zero
+		final boolean perPlan;
+
+		Metric(boolean perPlan) {
+			this.perPlan = perPlan;
+		}
+	}
+
+	static final int CAPACITY = 4096;
+	private static final int MASK = CAPACITY - 1;
+
+	private final long[][] records = new long[Metric.values().length][CAPACITY];
+	private long ticks;
+
+	public synchronized void record(long planNanos, long nodesExpanded, int frontierPeak, int pathLength,
+			int replans, boolean foodEaten) {
+		int i = (int) (ticks++ & MASK);
+		records[Metric.PLAN_NANOS.ordinal()][i] = planNanos;
+		records[Metric.NODES_EXPANDED.ordinal()][i] = nodesExpanded;
+		records[Metric.FRONTIER_PEAK.ordinal()][i] = frontierPeak;
+		records[Metric.PATH_LENGTH.ordinal()][i] = pathLength;
+		records[Metric.REPLANS.ordinal()][i] = replans;
+		records[Metric.FOOD_EATEN.ordinal()][i] = foodEaten ? 1 : 0;
+	}
+
+	// ticks recorded so far, only the last CAPACITY of them are still held
+	public synchronized long ticks() {
+		return ticks;
+	}
+
+	/**
+	 * The value at the given percentile (0-100, nearest rank) over the ticks held, or over just
+	 * the ticks that searched for the planning metrics. 0 when there are none.
+	 */
+	public long percentile(Metric metric, double percentile) {
+		long[] values = window(metric);
+		if (values.length == 0) {
+			return 0;
+		}
+		Arrays.sort(values);
+		int rank = (int) Math.ceil(percentile / 100 * values.length);
+		return values[Math.max(0, Math.min(values.length, rank) - 1)];
+	}
+
+	public long total(Metric metric) {
+		long total = 0;
+		for (long value : window(metric)) {
+			total += value;
+		}
+		return total;
+	}
+
+	public List<String> summary() {
+		List<String> lines = new ArrayList<>();
+		lines.add("Plan us p50/p99/max: " + percentiles(Metric.PLAN_NANOS, 1000));
+		lines.add("Nodes p50/p99/max: " + percentiles(Metric.NODES_EXPANDED, 1));
+		lines.add("Frontier p50/p99/max: " + percentiles(Metric.FRONTIER_PEAK, 1));
+		lines.add("Path p50/p99/max: " + percentiles(Metric.PATH_LENGTH, 1));
+		lines.add("Replans " + total(Metric.REPLANS) + ", food " + total(Metric.FOOD_EATEN)
+				+ " in last " + Math.min(ticks(), CAPACITY) + " ticks");
+		return lines;
+	}
+
+	private String percentiles(Metric metric, long unit) {
+		return percentile(metric, 50) / unit + "/" + percentile(metric, 99) / unit + "/" + percentile(metric, 100) / unit;
+	}
+
+	private synchronized long[] window(Metric metric) {
+		int held = (int) Math.min(ticks, CAPACITY);
+		long[] values = records[metric.ordinal()];
+		long[] replans = records[Metric.REPLANS.ordinal()];
+		long[] copy = new long[held];
+		int count = 0;
+		for (int i = 0; i < held; i++) {
+			if (!metric.perPlan || replans[i] > 0) {
+				copy[count++] = values[i];
+			}
+		}
+		return count == held ? copy : Arrays.copyOf(copy, count);
+	}
+}
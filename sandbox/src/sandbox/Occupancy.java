@@ -0,0 +1,56 @@
+package sandbox;
+
+/**
+ * Which cells of the board are covered by the snake, as one bit per cell indexed by y * width + x.
+ * Board keeps it in step with the snake on every move, so membership is O(1) instead of a scan
+ * of the snake's segments. Walls are occupied too, for good: they have a second set of bits so
+ * searches that let the snake into cells its tail will have left can tell them apart.
+ */
+class Occupancy {
+
+	private final long[] bits;
+	private final long[] walls;
+
+	public Occupancy(int width, int height) {
+		this.bits = new long[(width * height + 63) >>> 6];
+		this.walls = new long[bits.length];
+	}
+
+	public boolean isOccupied(int cell) {
+		return (bits[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	public void occupy(int cell) {
+		bits[cell >>> 6] |= 1L << cell;
+	}
+
+	public void vacate(int cell) {
+		bits[cell >>> 6] &= ~(1L << cell);
+	}
+
+	public boolean isWall(int cell) {
+		return (walls[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	public void addWall(int cell) {
+		walls[cell >>> 6] |= 1L << cell;
+		occupy(cell);
+	}
+
+	// Takes every occupied cell of the other board as a wall, for a search that has to plan
+	// round bodies it can't see moving
+	public void wallOff(Occupancy board) {
+		System.arraycopy(board.bits, 0, bits, 0, bits.length);
+		System.arraycopy(board.bits, 0, walls, 0, walls.length);
+	}
+
+	// Leaves the cell occupied
+	public void removeWall(int cell) {
+		walls[cell >>> 6] &= ~(1L << cell);
+	}
+
+	// Vacates every cell but the walls
+	public void clear() {
+		System.arraycopy(walls, 0, bits, 0, bits.length);
+	}
+}
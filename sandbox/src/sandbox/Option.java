@@ -1,7 +1,7 @@
-package sandbox;
-
-public interface Option {
-	String getStateName();
-	String getFullDescription();
-	int matchingKey();
-}
+package sandbox;
+
+public interface Option {
+	String getStateName();
+	String getFullDescription();
+	int matchingKey();
+}
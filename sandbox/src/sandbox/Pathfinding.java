@@ -1,373 +1,355 @@
-package sandbox;
-
-import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
-
-enum Pathfinding implements Option {
-	MANUAL {
-		@Override
-		public String getFullDescription() {
-			return "Manual";
-		}
-
-		@Override
-		public int matchingKey() {
-			return 0;
-		}
-
-		@Override
-		public String getStateName() {
-			return "Manual";
-		}
-
-		@Override
-		List<Direction> find(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height) {
-			return new ArrayList<>();
-		}		
-	}, 
-	BFS {
-		@Override
-		public String getFullDescription() {
-			return "Breadth First Search";
-		}
-
-		@Override
-		public int matchingKey() {
-			return KeyEvent.VK_B;
-		}
-
-		@Override
-		public String getStateName() {
-			return "BFS";
-		}
-
-		@Override
-		List<Direction> find(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height) {
-			return super.findPath(snake, foodCoordinate, width, height);
-		}
-	}, 
-	// Manhattan distances (ignore tail segments that will be gone by time we reach them)
-	BFS_MANHATTAN {
-		@Override
-		public String getFullDescription() {
-			return "Breadth First Search, with Manhattan distances, ignoring tail";
-		}
-
-		@Override
-		public int matchingKey() {
-			return KeyEvent.VK_M;
-		}
-
-		@Override
-		public String getStateName() {
-			return "BFS with Manhattan";
-		}
-
-		@Override
-		List<Direction> find(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height) {
-			return super.findPath(snake, foodCoordinate, width, height);
-		}
-	},
-	DFS {
-
-		@Override
-		public String getFullDescription() {
-			return "Depth First Search";
-		}
-
-		@Override
-		public int matchingKey() {
-			return KeyEvent.VK_D;
-		}
-
-		@Override
-		public String getStateName() {
-			return "DFS";
-		}
-
-		@Override
-		List<Direction> find(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height) {
-			return super.findPath(snake, foodCoordinate, width, height);
-		}	
-	},
-	HEURISTIC {
-
-		@Override
-		public String getStateName() {
-			return "HEURISTIC";
-		}
-
-		@Override
-		public String getFullDescription() {
-			return "Heuristic only";
-		}
-
-		@Override
-		public int matchingKey() {
-			return KeyEvent.VK_H;
-		}
-
-		@Override
-		List<Direction> find(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height) {
-			
-			Direction direction = firstDirection(snake.get(0), foodCoordinate);
-			
-			// It's about to crash into itself, so switch to a more intelligent pathfinding strategy
-			if (snake.contains(snake.get(0).getCoordinateInDirection(direction))) {
-				return BFS.find(snake, foodCoordinate, width, height);
-			} else {
-				return new ArrayList<Direction>(Arrays.asList(direction));				
-			}
-		}
-		
-		
-		private Direction firstDirection(Coordinate a, Coordinate b) {
-			int xDiff = a.x - b.x;
-			int yDiff = a.y - b.y;
-			
-			Direction direction = Direction.DOWN;
-			if (yDiff > 0) {
-				direction = Direction.UP;
-			} else if (yDiff < 0) {
-				direction = Direction.DOWN;
-			} else if (xDiff > 0) {
-				direction = Direction.LEFT;
-			} else if (xDiff < 0) {
-				direction = Direction.RIGHT;
-			}
-			System.out.println("x:"+xDiff +",y"+yDiff+",dir:"+direction);
-			return direction;
-		}
-	},
-	// A Hamiltonian cycle
-	LONGEST_PATH {
-
-		@Override
-		public String getStateName() {
-			return "LONGEST PATH";
-		}
-
-		@Override
-		public String getFullDescription() {
-			return "Follow Hamiltonian cycle";
-		}
-
-		@Override
-		public int matchingKey() {
-			return KeyEvent.VK_L;
-		}
-
-		@Override
-		List<Direction> find(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height) {
-			List<Direction> path = new ArrayList<>();
-			
-			if (snake.get(0).x == width - 1) {
-				path.add(Direction.DOWN);
-				path.addAll(super.returnXManyOfDirection(Direction.LEFT, width - 1));
-				path.addAll(super.returnXManyOfDirection(Direction.UP, height - 1));
-				path.add(Direction.RIGHT);
-			} else if (snake.get(0).y < height - 2) {
-				path.add(Direction.DOWN);
-			} else {
-				path.add(Direction.RIGHT);
-				
-				path.addAll(super.returnXManyOfDirection(Direction.UP, height-2));
-				
-				path.add(Direction.RIGHT);
-				
-				path.addAll(super.returnXManyOfDirection(Direction.DOWN, height-2));
-			}
-//			Node goalNode = new Node(new Coordinate(1000, 1000));
-//			List<Node> search = super.search(new Node(snake.get(0)), goalNode, snake, new LinkedList<Node>(), width, height);
-//			List<Node> path = super.constructPath(search.get(0));
-//			
-//			List<Direction> directions = super.buildDirectionsFromPath(snake.get(0), path);
-//			return directions;
-			return path;
-		}
-		
-	};
-	
-	private List<Direction> returnXManyOfDirection(Direction direction, int number) {
-		List<Direction> directions = new ArrayList<>();
-		for (int i = 0; i < number; i++) {
-			directions.add(direction);
-		}
-		return directions;
-	}
-	
-
-	abstract List<Direction> find(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height);
-	
-	private List<Direction> findPath(List<Coordinate> snake, Coordinate foodCoordinate, int width, int height) {
-		LinkedList<Node> visited = new LinkedList<Node>();
-		
-		Node startNode = new Node(new Coordinate(snake.get(0).x, snake.get(0).y));
-		Node goalNode = new Node(new Coordinate(foodCoordinate.x, foodCoordinate.y));
-		List<Node> search = search(startNode, goalNode, snake, visited, width, height);
-		if (search != null) {
-			System.out.println("Found!: " + search);	
-		} else {
-			System.out.println("None found");			
-		}
-		if (search==null || search.isEmpty()) {
-			Optional<Coordinate> firstNeighbour = getNeighbouringCoordinates(snake.get(0).x, snake.get(0).y, width, height).stream().findFirst();
-			if (! firstNeighbour.isPresent()) {
-				return new ArrayList<>(Arrays.asList(Direction.DOWN)); // as in, you're going down, because game over
-			} else {
-				search = Collections.singletonList(new Node(firstNeighbour.get()));
-			}
-		}
-			
-		return buildDirectionsFromPath(snake.get(0), search);
-	}
-	
-	private List<Direction> buildDirectionsFromPath(Coordinate snakeHead, List<Node> path) {
-		List<Direction> pathToFollow = new ArrayList<>();
-		pathToFollow.add(snakeHead.findDirectionToAdjacentCoordinate(path.get(0).coordinates));
-		for (int i = 0; i < path.size() - 2; i++) {
-			pathToFollow.add(path.get(i).coordinates.findDirectionToAdjacentCoordinate(path.get(i + 1).coordinates));
-		}
-		return pathToFollow;
-	}
-	
-	
-	private List<Node> search(Node startNode, Node goalNode, List<Coordinate> snake, LinkedList<Node> visited, int width, int height) {
-		  
-	  // list of nodes to visit (sorted)
-	  LinkedList<Node> toVisit = new LinkedList<>();
-	  toVisit.add(startNode);
-	  startNode.pathParent = null;
-	  
-	  while (!toVisit.isEmpty()) {
-		Node node = null;
-		switch (this) {
-		  case DFS:
-		  	node = (Node)toVisit.removeLast();
-		  	break;
-		  case BFS: 
-		  case BFS_MANHATTAN: 
-		  default:
-		  	node = (Node)toVisit.removeFirst();
-		  	break;
-		}
-	    if (node.equals(goalNode)) {
-	      // path found!
-	      return constructPath(node);
-	      
-	    } else {
-	      visited.add(node);
-	      
-	      // add neighbours to the "to visit" list
-	      for (Node neighborNode : getNodeNeighbors(node, snake, width, height)) {
-	    	
-	        if (!visited.contains(neighborNode) && 
-	        	!toVisit.contains(neighborNode)
-	        ) {
-	          neighborNode.pathParent = node;
-	          toVisit.add(neighborNode);
-	        }
-	      }
-	    }
-	  }
-	  
-	  // no path found	  
-	  return null;
-	}
-	
-	private List<Node> getNodeNeighbors(Node node, List<Coordinate> snake, int width, int height) {
-		Set<Coordinate> neighborCoordinates = getNeighbouringCoordinates(node.coordinates.x, node.coordinates.y, width, height);
-		
-		switch (this) {
-			case BFS:
-			case DFS:
-				neighborCoordinates.removeAll(snake);
-				break;
-			case BFS_MANHATTAN:
-			default:
-				Iterator<Coordinate> iterator = neighborCoordinates.iterator();
-				while (iterator.hasNext()) {
-					Coordinate coordinate = iterator.next();
-					if (snake.contains(coordinate)) {
-						int distanceFromSnakeTail = distanceFromSnakeTail(coordinate, snake);
-						int manhattanDistance = manhattanDistance(snake.get(0), coordinate);
-						if (manhattanDistance < distanceFromSnakeTail) {
-							iterator.remove();
-						}			  				  
-					}
-				}			  
-				break;
-		}
-		  
-		List<Node> neighbours = new ArrayList<Node>();
-		for (Coordinate coordinate : neighborCoordinates) {
-			Node neighbour = new Node(coordinate);
-			neighbour.pathParent = node;
-			neighbour.depth = node.depth + 1;
-			neighbours.add(neighbour);				  			  
-		}
-		  
-		return neighbours;
-	}
-	
-	private Set<Coordinate> getNeighbouringCoordinates(int x, int y, int width, int height) {
-		Set<Coordinate> neighborCoordinates = new HashSet<Coordinate>();
-		  
-		//up
-		  if (y + 1 < height) {
-			  neighborCoordinates.add(new Coordinate(x, y + 1));
-		  }
-		//down
-		  if (y - 1 >= 0) {
-			  neighborCoordinates.add(new Coordinate(x, y - 1));
-		  }
-		//left
-		  if (x - 1 >= 0) {
-			  neighborCoordinates.add(new Coordinate(x - 1, y));
-		  }
-		//right
-		  if (x + 1 < width) {
-			  neighborCoordinates.add(new Coordinate(x + 1, y));
-		  }
-		
-		return neighborCoordinates;
-	}
-	
-	
-	private int distanceFromSnakeTail(Coordinate node, List<Coordinate> snake) {
-		return snake.size() - snake.indexOf(node); 
-	}
-	
-	
-	private int manhattanDistance(Coordinate first, Coordinate second) {
-		return Math.abs(second.x - first.x) 
-				+ Math.abs(second.y - first.y);
-	}
-	
-	
-	private List<Node> constructPath(Node node) {
-		LinkedList<Node> path = new LinkedList<>();
-		while (node.pathParent != null) {
-			path.addFirst(node);
-			node = node.pathParent;
-		}
-		return path;
-	}
-
-	public static Optional<Pathfinding> forKey(int keyCode) {
-		for (Pathfinding pathfinding : values()) {
-			if (pathfinding.matchingKey() == keyCode) {
-				return Optional.of(pathfinding);
-			}
-		}
-		return Optional.empty();
-	}
-}
+package sandbox;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+enum Pathfinding implements Option {
+	MANUAL {
+		@Override
+		public String getFullDescription() {
+			return "Manual";
+		}
+
+		@Override
+		public int matchingKey() {
+			return 0;
+		}
+
+		@Override
+		public String getStateName() {
+			return "Manual";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return new ArrayList<>();
+		}		
+	}, 
+	BFS {
+		@Override
+		public String getFullDescription() {
+			return "Breadth First Search";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_B;
+		}
+
+		@Override
+		public String getStateName() {
+			return "BFS";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return super.findPath(snake, occupancy, foods, topology);
+		}
+	}, 
+	// Manhattan distances (ignore tail segments that will be gone by time we reach them)
+	BFS_MANHATTAN {
+		@Override
+		public String getFullDescription() {
+			return "Breadth First Search, with Manhattan distances, ignoring tail";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_M;
+		}
+
+		@Override
+		public String getStateName() {
+			return "BFS with Manhattan";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return super.findPath(snake, occupancy, foods, topology);
+		}
+	},
+	// Like BFS_MANHATTAN, but using how many moves it really takes to reach each body cell
+	BFS_TIMED {
+		@Override
+		public String getFullDescription() {
+			return "Breadth First Search, entering tail cells once the tail has moved off them";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_T;
+		}
+
+		@Override
+		public String getStateName() {
+			return "BFS with tail timing";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return super.findPath(snake, occupancy, foods, topology);
+		}
+	},
+	DFS {
+
+		@Override
+		public String getFullDescription() {
+			return "Depth First Search";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_D;
+		}
+
+		@Override
+		public String getStateName() {
+			return "DFS";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return super.findPath(snake, occupancy, foods, topology);
+		}	
+	},
+	ASTAR {
+
+		@Override
+		public String getFullDescription() {
+			return "A* with Manhattan distances";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_A;
+		}
+
+		@Override
+		public String getStateName() {
+			return "A*";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return super.findPath(snake, occupancy, foods, topology);
+		}
+	},
+	HEURISTIC {
+
+		@Override
+		public String getStateName() {
+			return "HEURISTIC";
+		}
+
+		@Override
+		public String getFullDescription() {
+			return "Heuristic only";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_H;
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			
+			Direction direction = firstDirection(snake.getHead(), nearestFood(snake.getHead(), foods, topology, null), topology);
+			
+			// It's about to crash into itself, so switch to a more intelligent pathfinding strategy
+			int next = topology.neighbour(snake.getHead(), direction);
+			if (next >= 0 && occupancy.isOccupied(next)) {
+				return BFS.find(snake, occupancy, foods, topology);
+			} else {
+				return new ArrayList<Direction>(Arrays.asList(direction));				
+			}
+		}
+		
+		
+		private Direction firstDirection(int a, int b, Topology topology) {
+			int xDiff = topology.x(a) - topology.x(b);
+			int yDiff = topology.y(a) - topology.y(b);
+			
+			Direction direction = Direction.DOWN;
+			if (yDiff > 0) {
+				direction = Direction.UP;
+			} else if (yDiff < 0) {
+				direction = Direction.DOWN;
+			} else if (xDiff > 0) {
+				direction = Direction.LEFT;
+			} else if (xDiff < 0) {
+				direction = Direction.RIGHT;
+			}
+			return direction;
+		}
+	},
+	// A Hamiltonian cycle
+	LONGEST_PATH {
+
+		@Override
+		public String getStateName() {
+			return "LONGEST PATH";
+		}
+
+		@Override
+		public String getFullDescription() {
+			return "Follow Hamiltonian cycle";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_L;
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			HamiltonianCycle cycle = HamiltonianCycle.forBoard(topology.getWidth(), topology.getHeight());
+			int next = cycle == null ? -1 : cycle.nextCell(snake, occupancy, foods);
+			
+			// no cycle on a board with an odd number of cells, or the body is across it
+			if (next < 0) {
+				return BFS_TIMED.find(snake, occupancy, foods, topology);
+			}
+			return new ArrayList<>(Arrays.asList(topology.direction(snake.getHead(), next)));
+		}
+		
+	},
+	// Like BFS_TIMED, but searching back from the food as well as forward from the head
+	BFS_BIDIRECTIONAL {
+
+		@Override
+		public String getFullDescription() {
+			return "Bidirectional Breadth First Search, from the head and the food at once";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_I;
+		}
+
+		@Override
+		public String getStateName() {
+			return "Bidirectional BFS";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return super.findPath(snake, occupancy, foods, topology);
+		}
+	},
+	// A* that prefers, of cells that look equally good, those nearest the straight line to the food
+	ASTAR_STRAIGHT {
+
+		@Override
+		public String getFullDescription() {
+			return "A* with Manhattan distances, breaking ties towards the straight line";
+		}
+
+		@Override
+		public int matchingKey() {
+			return KeyEvent.VK_R;
+		}
+
+		@Override
+		public String getStateName() {
+			return "A* straight line";
+		}
+
+		@Override
+		List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+			return super.findPath(snake, occupancy, foods, topology);
+		}
+	};
+	
+	abstract List<Direction> find(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology);
+	
+	// Every food is a goal of the one search, which stops at whichever it reaches first. Only if
+	// eating that one would shut the snake in is it dropped and the search run again
+	private List<Direction> findPath(SnakeBody snake, Occupancy occupancy, int[] foods, Topology topology) {
+		SearchKernel kernel = SearchKernel.forBoard(topology.getWidth(), topology.getHeight());
+		int head = snake.getHead();
+		kernel.clearGoals();
+		for (int food : foods) {
+			kernel.addGoal(food);
+		}
+		
+		for (int goalsLeft = foods.length; goalsLeft > 0; goalsLeft--) {
+			boolean found;
+			switch (this) {
+				case ASTAR:
+				case ASTAR_STRAIGHT:
+					// the estimate needs a single goal, so head for the food that looks nearest
+					found = kernel.aStar(head, nearestFood(head, foods, topology, kernel), occupancy, 
+							this == ASTAR ? Heuristic.MANHATTAN : Heuristic.STRAIGHT_LINE);
+					break;
+				case BFS_TIMED:
+					found = kernel.timedSearch(head, snake, occupancy);
+					break;
+				case BFS_BIDIRECTIONAL:
+					found = kernel.bidirectionalSearch(head, foods, snake, occupancy);
+					break;
+				default:
+					// BFS_MANHATTAN ignores tail segments that will be gone by the time we reach them
+					found = kernel.search(head, snake, occupancy, this == DFS, this == BFS_MANHATTAN);
+					break;
+			}
+			if (!found) {
+				break;
+			}
+			if (kernel.pathLeavesRoom(snake, occupancy)) {
+				return buildDirectionsFromPath(head, kernel, topology);
+			}
+			kernel.removeGoal(kernel.pathCell(kernel.pathLength() - 1));
+		}
+		
+		// no way to the food, or none that doesn't shut the snake in, so play for time
+		int roomiest = kernel.roomiestNeighbour(snake, occupancy);
+		if (roomiest >= 0) {
+			return new ArrayList<>(Arrays.asList(topology.direction(head, roomiest)));
+		}
+		int firstNeighbour = kernel.firstNeighbour(head);
+		if (firstNeighbour < 0) {
+			return new ArrayList<>(Arrays.asList(Direction.DOWN)); // as in, you're going down, because game over
+		}
+		return new ArrayList<>(Arrays.asList(topology.direction(head, firstNeighbour)));
+	}
+	
+	// by Manhattan distance, the first listed of those equally near. Given a kernel, only foods
+	// that are still its goals count
+	private static int nearestFood(int head, int[] foods, Topology topology, SearchKernel kernel) {
+		int nearest = foods[0];
+		int nearestDistance = Integer.MAX_VALUE;
+		for (int food : foods) {
+			if (kernel != null && !kernel.isGoal(food)) {
+				continue;
+			}
+			int distance = Heuristic.MANHATTAN.estimate(head, food, topology.getWidth());
+			if (distance < nearestDistance) {
+				nearest = food;
+				nearestDistance = distance;
+			}
+		}
+		return nearest;
+	}
+	
+	private List<Direction> buildDirectionsFromPath(int snakeHead, SearchKernel kernel, Topology topology) {
+		List<Direction> pathToFollow = new ArrayList<>();
+		pathToFollow.add(topology.direction(snakeHead, kernel.pathCell(0)));
+		for (int i = 0; i < kernel.pathLength() - 2; i++) {
+			pathToFollow.add(topology.direction(kernel.pathCell(i), kernel.pathCell(i + 1)));
+		}
+		return pathToFollow;
+	}
+
+	public static Optional<Pathfinding> forKey(int keyCode) {
+		for (Pathfinding pathfinding : values()) {
+			if (pathfinding.matchingKey() == keyCode) {
+				return Optional.of(pathfinding);
+			}
+		}
+		return Optional.empty();
+	}
+}
@@ -0,0 +1,78 @@
+package sandbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a planned path honest between full searches. Each tick the next step is checked
+ * against the board in O(1); when it would run into the body, only the blocked stretch is
+ * re-searched: a BFS from the head to the nearest cell of the remaining path that is still
+ * free, with the rest of the old path kept as it was.
+ */
+class Replanner {
+
+	private final Topology topology;
+	private int[] cells = new int[16];
+
+	public Replanner(Topology topology) {
+		this.topology = topology;
+	}
+
+	// The tail's cell is free by the time the head gets there, as the tail moves first
+	public boolean isNextStepSafe(SnakeBody snake, Occupancy occupancy, Direction direction) {
+		int cell = topology.neighbour(snake.getHead(), direction);
+		return cell >= 0 && (!occupancy.isOccupied(cell) || cell == snake.getTail());
+	}
+
+	/**
+	 * Returns the path with its blocked stretch replaced by a detour, or an empty list
+	 * if none of the remaining path can be reached and it needs planning from scratch.
+	 */
+	public List<Direction> repair(SnakeBody snake, Occupancy occupancy, List<Direction> stale) {
+		return repair(snake, occupancy, snake.getHead(), stale);
+	}
+
+	// As above, for a path that starts from a cell the head has since moved off
+	public List<Direction> repair(SnakeBody snake, Occupancy occupancy, int from, List<Direction> stale) {
+		int length = 0;
+		int cell = from;
+		for (Direction direction : stale) {
+			cell = topology.neighbour(cell, direction);
+			if (cell < 0) {
+				break;
+			}
+			if (length == cells.length) {
+				int[] grown = new int[cells.length * 2];
+				System.arraycopy(cells, 0, grown, 0, length);
+				cells = grown;
+			}
+			cells[length++] = cell;
+		}
+
+		SearchKernel kernel = SearchKernel.forBoard(topology.getWidth(), topology.getHeight());
+		kernel.clearGoals();
+		for (int i = 0; i < length; i++) {
+			if (!occupancy.isOccupied(cells[i])) {
+				kernel.addGoal(cells[i]);
+			}
+		}
+		if (!kernel.searchToAnyGoal(snake.getHead(), occupancy)) {
+			return new ArrayList<>();
+		}
+
+		int rejoin = kernel.pathCell(kernel.pathLength() - 1);
+		List<Direction> repaired = new ArrayList<>();
+		cell = snake.getHead();
+		for (int i = 0; i < kernel.pathLength(); i++) {
+			repaired.add(topology.direction(cell, kernel.pathCell(i)));
+			cell = kernel.pathCell(i);
+		}
+		for (int i = 0; i < length; i++) {
+			if (cells[i] == rejoin) {
+				repaired.addAll(stale.subList(i + 1, length));
+				break;
+			}
+		}
+		return repaired;
+	}
+}
@@ -0,0 +1,109 @@
+package sandbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Reads back a game written by {@link ReplayRecorder} and hands its directions to a board one
+ * tick at a time, in place of the board's own pathfinding.
+ */
+class ReplayPlayer {
+
+	private final long seed;
+	private final GameMap map;
+	private final long ticks;
+	private final Pathfinding pathfinding;
+	private final ByteBuffer directions;
+	private long played;
+
+	public ReplayPlayer(Path file) throws IOException {
+		ByteBuffer data;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			data = ByteBuffer.allocate((int) channel.size());
+			while (data.hasRemaining()) {
+				if (channel.read(data) < 0) {
+					break;
+				}
+			}
+		}
+		data.flip();
+		if (data.remaining() < ReplayRecorder.TICKS_OFFSET + Long.BYTES + 1 || data.getInt() != ReplayRecorder.MAGIC) {
+			throw new IOException(file + " isn't a replay");
+		}
+		byte version = data.get();
+		if (version != ReplayRecorder.VERSION) {
+			throw new IOException(file + " is a version " + version + " replay, only version " 
+					+ ReplayRecorder.VERSION + " can be played");
+		}
+		seed = data.getLong();
+		int width = data.getInt();
+		int height = data.getInt();
+		ticks = data.getLong();
+		byte[] name = new byte[data.get()];
+		data.get(name);
+		pathfinding = Pathfinding.valueOf(new String(name, StandardCharsets.US_ASCII));
+		int foods = data.getInt();
+		int[] walls = new int[data.getInt()];
+		for (int i = 0; i < walls.length; i++) {
+			walls[i] = data.getInt();
+		}
+		map = new GameMap(width, height, walls, foods);
+		directions = data.slice();
+		if (directions.remaining() < (ticks + 3) / 4) {
+			throw new IOException(file + " ends before its " + ticks + " ticks");
+		}
+	}
+
+	public boolean hasNext() {
+		return played < ticks;
+	}
+
+	public Direction next() {
+		int packed = directions.get((int) (played / 4));
+		Direction direction = Direction.values()[packed >> (int) (played % 4 * 2) & 3];
+		played++;
+		return direction;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public GameMap getMap() {
+		return map;
+	}
+
+	public long ticks() {
+		return ticks;
+	}
+
+	public Pathfinding getPathfinding() {
+		return pathfinding;
+	}
+
+	/**
+	 * Usage: ReplayPlayer file [gui]
+	 * <p>
+	 * Plays the replay headless as fast as it will go and prints the result, or in a window with gui.
+	 */
+	public static void main(String[] args) throws IOException {
+		ReplayPlayer replay = new ReplayPlayer(Paths.get(args[0]));
+		if (args.length > 1 && args[1].equals("gui")) {
+			SwingUtilities.invokeLater(() -> {
+				SnakeJFrame frame = new SnakeJFrame(replay.getSeed(), replay.getMap(), GameLoop.DEFAULT_TICKS_PER_FRAME);
+				frame.setVisible(true);
+				frame.play(replay);
+			});
+		} else {
+			HeadlessGame game = new HeadlessGame(replay.getPathfinding(), replay.getSeed(), replay.getMap());
+			System.out.println(game.replay(replay));
+		}
+	}
+}
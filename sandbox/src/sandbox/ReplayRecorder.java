@@ -0,0 +1,95 @@
+package sandbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a game as its seed, board size, strategy and map (food count, then the wall cells)
+ * followed by the direction moved on every tick, 2 bits each (by Direction ordinal, lowest bits first), four ticks to a byte. That is
+ * enough to play it again exactly, as food only depends on the seed and where the snake is,
+ * and a million ticks take about 250KB. Writes go through a buffer to a FileChannel, and the
+ * tick count in the header is filled in on close.
+ */
+class ReplayRecorder implements Closeable {
+
+	static final int MAGIC = 0x534E4B52; // "SNKR"
+	static final byte VERSION = 3;
+	// magic, version, seed, width and height come first
+	static final int TICKS_OFFSET = 4 + 1 + 8 + 4 + 4;
+	private final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private long ticks;
+	private int pending;
+
+	public ReplayRecorder(Path file, long seed, GameMap map, Pathfinding pathfinding) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		byte[] name = pathfinding.name().getBytes(StandardCharsets.US_ASCII);
+		buffer.putInt(MAGIC)
+			.put(VERSION)
+			.putLong(seed)
+			.putInt(map.getWidth())
+			.putInt(map.getHeight())
+			.putLong(0)
+			.put((byte) name.length)
+			.put(name)
+			.putInt(map.getFoods())
+			.putInt(map.getWalls().length);
+		for (int wall : map.getWalls()) {
+			if (buffer.remaining() < Integer.BYTES) {
+				flush();
+			}
+			buffer.putInt(wall);
+		}
+	}
+
+	public void record(Direction direction) {
+		pending |= direction.ordinal() << (int) (ticks % 4 * 2);
+		ticks++;
+		if (ticks % 4 == 0) {
+			buffer.put((byte) pending);
+			pending = 0;
+			if (!buffer.hasRemaining()) {
+				try {
+					flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	public long ticks() {
+		return ticks;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (ticks % 4 != 0) {
+				buffer.put((byte) pending);
+			}
+			flush();
+			ByteBuffer count = ByteBuffer.allocate(Long.BYTES).putLong(0, ticks);
+			channel.write(count, TICKS_OFFSET);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
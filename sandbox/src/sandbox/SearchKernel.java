@@ -0,0 +1,622 @@
+package sandbox;
+
+import java.util.Arrays;
+
+/**
+ * Breadth/depth first and A* search over packed cell indices (y * width + x) using int arrays that are
+ * allocated once per board size and reused for every search, so a search makes no garbage.
+ * Kernels hold per-search state, so each thread gets its own through {@link #forBoard(int, int)}.
+ * <p>
+ * Neighbours come from the board's shared {@link Topology}, and arrays only some searches need
+ * are allocated on first use, so memory stays at a few ints per cell on the biggest boards.
+ */
+class SearchKernel {
+
+	private static final ThreadLocal<SearchKernel> KERNELS = new ThreadLocal<>();
+
+	// A* heap entries pack the estimated total cost, the heuristic's tie break and the cell into one long
+	private static final int CELL_BITS = 22, TIE_BITS = 18;
+	private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+	private static final int MAX_TIE = (1 << TIE_BITS) - 1;
+
+	static final int LARGE_BOARD_CELLS = 512 * 512;
+
+	private final int width, height;
+	private final Topology topology;
+	private final int[] adjacent = new int[4];
+	private final int[] frontier;
+	private final int[] parent;
+	private final int[] seen;
+	private final int[] path;
+	private int[] depth;
+	private int[] freeTick;
+	private int[] goals;
+	private int goalGeneration;
+	// the search from the goals back towards the head, for bidirectionalSearch
+	private int[] backFrontier;
+	private int[] backSeen;
+	private int[] backParent;
+	private int[] backDepth;
+	private int[] closed;
+	private int[] cost;
+	// where the body would be after a move, stamped with bodyGeneration
+	private int[] body;
+	private int bodyGeneration;
+	private boolean floodReachedTail;
+	private long[] heap;
+	private int heapSize;
+	private int generation;
+	private int pathLength;
+	private long nodesExpanded;
+	private int frontierPeak;
+
+	private SearchKernel(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int cells = width * height;
+		this.topology = Topology.forBoard(width, height);
+		this.frontier = new int[cells];
+		this.parent = new int[cells];
+		this.seen = new int[cells];
+		this.path = new int[cells];
+	}
+
+	static SearchKernel forBoard(int width, int height) {
+		SearchKernel kernel = KERNELS.get();
+		if (kernel == null || kernel.width != width || kernel.height != height) {
+			kernel = new SearchKernel(width, height);
+			KERNELS.set(kernel);
+		}
+		return kernel;
+	}
+
+	/**
+	 * Searches from start to the nearest goal added since {@link #clearGoals()}, expanding the
+	 * newest frontier cell first when depthFirst and the oldest otherwise. When tailRecedes, body cells the head can't reach before the
+	 * tail has moved off them (by Manhattan distance) are treated as free.
+	 * On success the path, excluding start, is available from {@link #pathLength()}/{@link #pathCell(int)}.
+	 */
+	boolean search(int start, SnakeBody snake, Occupancy occupancy, boolean depthFirst, boolean tailRecedes) {
+		nextGeneration();
+		pathLength = 0;
+		if (tailRecedes) {
+			stampFreeTicks(snake);
+		}
+
+		int first = 0, last = 0;
+		frontier[last++] = start;
+		seen[start] = generation;
+		parent[start] = -1;
+
+		while (first < last) {
+			int cell = depthFirst ? frontier[--last] : frontier[first++];
+			nodesExpanded++;
+			if (goals[cell] == goalGeneration) {
+				buildPath(cell);
+				return pathLength > 0;
+			}
+
+			for (int i = 0, count = neighboursOf(cell); i < count; i++) {
+				int neighbour = adjacent[i];
+				if (seen[neighbour] != generation && isPassable(neighbour, snake, occupancy, tailRecedes)) {
+					seen[neighbour] = generation;
+					parent[neighbour] = cell;
+					frontier[last++] = neighbour;
+				}
+			}
+			if (last - first > frontierPeak) {
+				frontierPeak = last - first;
+			}
+		}
+
+		// no path found
+		return false;
+	}
+
+	// Goals are where search, timedSearch and searchToAnyGoal stop, any number of them at once
+	void clearGoals() {
+		if (goals == null) {
+			goals = new int[frontier.length];
+		}
+		goalGeneration++;
+		if (goalGeneration == 0) {
+			Arrays.fill(goals, 0);
+			goalGeneration = 1;
+		}
+	}
+
+	void addGoal(int cell) {
+		goals[cell] = goalGeneration;
+	}
+
+	void removeGoal(int cell) {
+		goals[cell] = goalGeneration - 1;
+	}
+
+	boolean isGoal(int cell) {
+		return goals[cell] == goalGeneration;
+	}
+
+	/**
+	 * Breadth first search through unoccupied cells to whichever goal added since
+	 * {@link #clearGoals()} is nearest, in one pass however many goals there are.
+	 */
+	boolean searchToAnyGoal(int start, Occupancy occupancy) {
+		nextGeneration();
+		pathLength = 0;
+
+		int first = 0, last = 0;
+		frontier[last++] = start;
+		seen[start] = generation;
+		parent[start] = -1;
+
+		while (first < last) {
+			int cell = frontier[first++];
+			nodesExpanded++;
+			if (goals[cell] == goalGeneration && cell != start) {
+				buildPath(cell);
+				return true;
+			}
+
+			for (int i = 0, count = neighboursOf(cell); i < count; i++) {
+				int neighbour = adjacent[i];
+				if (seen[neighbour] != generation && !occupancy.isOccupied(neighbour)) {
+					seen[neighbour] = generation;
+					parent[neighbour] = cell;
+					frontier[last++] = neighbour;
+				}
+			}
+			if (last - first > frontierPeak) {
+				frontierPeak = last - first;
+			}
+		}
+
+		// no path found
+		return false;
+	}
+
+	/**
+	 * Breadth first search that knows when each body cell will be free: the segment i from the
+	 * head leaves its cell after size - i ticks, so a body cell can be entered at any depth at
+	 * or beyond that. This is what BFS_MANHATTAN estimates with straight-line distance from the
+	 * head, using the real path depth instead. The snake only grows on the tick it eats, which
+	 * is the end of the path, so no segment stays put longer than this. Goals are as for search.
+	 */
+	boolean timedSearch(int start, SnakeBody snake, Occupancy occupancy) {
+		nextGeneration();
+		pathLength = 0;
+
+		if (depth == null) {
+			depth = new int[frontier.length];
+		}
+		stampFreeTicks(snake);
+
+		int first = 0, last = 0;
+		frontier[last++] = start;
+		seen[start] = generation;
+		parent[start] = -1;
+		depth[start] = 0;
+
+		while (first < last) {
+			int cell = frontier[first++];
+			nodesExpanded++;
+			if (goals[cell] == goalGeneration) {
+				buildPath(cell);
+				return pathLength > 0;
+			}
+
+			int neighbourDepth = depth[cell] + 1;
+			for (int i = 0, count = neighboursOf(cell); i < count; i++) {
+				int neighbour = adjacent[i];
+				if (seen[neighbour] != generation 
+						&& (!occupancy.isOccupied(neighbour) 
+								|| (freeTick[neighbour] <= neighbourDepth && !occupancy.isWall(neighbour)))) {
+					seen[neighbour] = generation;
+					parent[neighbour] = cell;
+					depth[neighbour] = neighbourDepth;
+					frontier[last++] = neighbour;
+				}
+			}
+			if (last - first > frontierPeak) {
+				frontierPeak = last - first;
+			}
+		}
+
+		// no path found
+		return false;
+	}
+
+	/**
+	 * Breadth first search from start and back from every food that is still a goal at the same
+	 * time, a level of whichever frontier is smaller at a time, until the two meet. Each side
+	 * covers a diamond half as wide as a one-sided search would, so with the head and food in
+	 * line, away from the edges, about half the cells are expanded. With the food off to the
+	 * diagonal, or an edge cutting the one-sided search short anyway, the saving is much smaller.
+	 * <p>
+	 * Body cells going forward are as for timedSearch. Going back, the depth a cell will be
+	 * reached at isn't known yet, but it can't be less than the cell's Manhattan distance from
+	 * the head, so a body cell is only let in if its segment will have gone by then. The backward
+	 * half of a path is then safe however the forward half gets to it. The forward search can
+	 * still go through cells the backward one couldn't, so if the backward frontier runs out
+	 * first the forward one carries on alone until it reaches any cell the backward one saw.
+	 */
+	boolean bidirectionalSearch(int start, int[] foods, SnakeBody snake, Occupancy occupancy) {
+		nextGeneration();
+		pathLength = 0;
+
+		if (depth == null) {
+			depth = new int[frontier.length];
+		}
+		if (backFrontier == null) {
+			backFrontier = new int[frontier.length];
+			backSeen = new int[frontier.length];
+			backParent = new int[frontier.length];
+			backDepth = new int[frontier.length];
+		}
+		stampFreeTicks(snake);
+
+		int first = 0, last = 0;
+		frontier[last++] = start;
+		seen[start] = generation;
+		parent[start] = -1;
+		depth[start] = 0;
+		int backFirst = 0, backLast = 0;
+		for (int food : foods) {
+			if (goals[food] == goalGeneration && backSeen[food] != generation && food != start) {
+				backFrontier[backLast++] = food;
+				backSeen[food] = generation;
+				backParent[food] = -1;
+				backDepth[food] = 0;
+			}
+		}
+		if (backLast == 0) {
+			return false;
+		}
+
+		// the shortest way found so far, from the forward cell meetFrom on to the backward cell meetTo
+		int meetFrom = -1, 
+			meetTo = -1, 
+			meetLength = Integer.MAX_VALUE;
+		// a level is finished once started, as a shorter meeting can turn up later in the same level
+		while (first < last && meetFrom < 0) {
+			if (backFirst == backLast || last - first <= backLast - backFirst) {
+				for (int levelEnd = last; first < levelEnd; ) {
+					int cell = frontier[first++];
+					nodesExpanded++;
+					int neighbourDepth = depth[cell] + 1;
+					for (int i = 0, count = neighboursOf(cell); i < count; i++) {
+						int neighbour = adjacent[i];
+						if (occupancy.isOccupied(neighbour) 
+								&& (freeTick[neighbour] > neighbourDepth || occupancy.isWall(neighbour))) {
+							continue;
+						}
+						if (backSeen[neighbour] == generation && neighbourDepth + backDepth[neighbour] < meetLength) {
+							meetFrom = cell;
+							meetTo = neighbour;
+							meetLength = neighbourDepth + backDepth[neighbour];
+						}
+						if (seen[neighbour] != generation) {
+							seen[neighbour] = generation;
+							parent[neighbour] = cell;
+							depth[neighbour] = neighbourDepth;
+							frontier[last++] = neighbour;
+						}
+					}
+				}
+			} else {
+				for (int levelEnd = backLast; backFirst < levelEnd; ) {
+					int cell = backFrontier[backFirst++];
+					nodesExpanded++;
+					int neighbourDepth = backDepth[cell] + 1;
+					for (int i = 0, count = neighboursOf(cell); i < count; i++) {
+						int neighbour = adjacent[i];
+						if (seen[neighbour] == generation && depth[neighbour] + neighbourDepth < meetLength) {
+							meetFrom = neighbour;
+							meetTo = cell;
+							meetLength = depth[neighbour] + neighbourDepth;
+						}
+						if (backSeen[neighbour] != generation 
+								&& (!occupancy.isOccupied(neighbour) 
+										|| (!occupancy.isWall(neighbour) 
+												&& manhattanDistance(start, neighbour) >= freeTick[neighbour]))) {
+							backSeen[neighbour] = generation;
+							backParent[neighbour] = cell;
+							backDepth[neighbour] = neighbourDepth;
+							backFrontier[backLast++] = neighbour;
+						}
+					}
+				}
+			}
+			if ((last - first) + (backLast - backFirst) > frontierPeak) {
+				frontierPeak = (last - first) + (backLast - backFirst);
+			}
+		}
+		if (meetFrom < 0) {
+			// no path found
+			return false;
+		}
+
+		buildPath(meetFrom);
+		for (int cell = meetTo; cell >= 0; cell = backParent[cell]) {
+			path[pathLength++] = cell;
+		}
+		return true;
+	}
+
+	/**
+	 * A* from start to goal through unoccupied cells, with a binary heap of open cells ordered by
+	 * cost so far plus the heuristic's estimate. Every move costs 1, and the heuristics are
+	 * consistent, so a cell's first expansion is along a shortest path and paths are as short as BFS finds.
+	 */
+	boolean aStar(int start, int goal, Occupancy occupancy, Heuristic heuristic) {
+		if (heap == null) {
+			closed = new int[frontier.length];
+			cost = new int[frontier.length];
+			heap = new long[frontier.length];
+		}
+		nextGeneration();
+		pathLength = 0;
+		heapSize = 0;
+
+		seen[start] = generation;
+		cost[start] = 0;
+		parent[start] = -1;
+		push(start, 0, start, goal, heuristic);
+
+		while (heapSize > 0) {
+			int cell = (int) (pop() & CELL_MASK);
+			if (closed[cell] == generation) {
+				continue;
+			}
+			closed[cell] = generation;
+			nodesExpanded++;
+			if (cell == goal) {
+				buildPath(cell);
+				return pathLength > 0;
+			}
+
+			int neighbourCost = cost[cell] + 1;
+			for (int i = 0, count = neighboursOf(cell); i < count; i++) {
+				int neighbour = adjacent[i];
+				if (closed[neighbour] == generation || occupancy.isOccupied(neighbour)) {
+					continue;
+				}
+				if (seen[neighbour] != generation || neighbourCost < cost[neighbour]) {
+					seen[neighbour] = generation;
+					cost[neighbour] = neighbourCost;
+					parent[neighbour] = cell;
+					push(neighbour, neighbourCost, start, goal, heuristic);
+				}
+			}
+		}
+
+		// no path found
+		return false;
+	}
+
+	/**
+	 * Whether the snake still has room after following the last path found and eating at its
+	 * end. With the body moved to where it would be then, the head has to reach either the new
+	 * tail, which it can then chase, or at least as many free cells as the snake is long.
+	 */
+	boolean pathLeavesRoom(SnakeBody snake, Occupancy occupancy) {
+		int length = snake.size() + 1;
+		nextBodyGeneration();
+		int stamped = 0, 
+			tail = -1;
+		for (int i = pathLength - 1; i >= 0 && stamped < length; i--, stamped++) {
+			tail = path[i];
+			body[tail] = bodyGeneration;
+		}
+		for (int i = 0; i < snake.size() && stamped < length; i++, stamped++) {
+			tail = snake.get(i);
+			body[tail] = bodyGeneration;
+		}
+		int reached = floodFill(path[pathLength - 1], tail, length, occupancy);
+		return floodReachedTail || reached >= length;
+	}
+
+	/**
+	 * The neighbour of the head with the most room once the snake has moved onto it: one the
+	 * tail can be followed from if there is any, otherwise the one that reaches the most
+	 * free cells, up to as many as the snake is long. -1 if every neighbour is blocked.
+	 */
+	int roomiestNeighbour(SnakeBody snake, Occupancy occupancy) {
+		int head = snake.getHead(), 
+			tail = snake.getTail();
+		int best = -1, 
+			bestRoom = -1;
+		// room for the whole body is as good as more room, and stops each flood early
+		int enough = snake.size() + 1;
+		for (int i = 0, count = neighboursOf(head); i < count; i++) {
+			int candidate = adjacent[i];
+			// the tail moves off its cell as the head moves
+			if (occupancy.isOccupied(candidate) && candidate != tail) {
+				continue;
+			}
+			nextBodyGeneration();
+			body[candidate] = bodyGeneration;
+			for (int j = 0; j < snake.size() - 1; j++) {
+				body[snake.get(j)] = bodyGeneration;
+			}
+			int newTail = snake.get(snake.size() - 2);
+			int room = floodFill(candidate, newTail, enough, occupancy);
+			if (floodReachedTail) {
+				room = Integer.MAX_VALUE;
+			}
+			if (room > bestRoom) {
+				best = candidate;
+				bestRoom = room;
+			}
+			// neighboursOf refilled adjacent while flooding
+			neighboursOf(head);
+		}
+		return best;
+	}
+
+	// Counts the cells reachable from start around the stamped body and the walls, stopping once
+	// there are enough or the tail turns out to be next to one of them
+	private int floodFill(int start, int tail, int enough, Occupancy occupancy) {
+		nextGeneration();
+		floodReachedTail = false;
+		int first = 0, last = 0;
+		frontier[last++] = start;
+		seen[start] = generation;
+
+		while (first < last && last - 1 < enough && !floodReachedTail) {
+			int cell = frontier[first++];
+			for (int i = 0, count = neighboursOf(cell); i < count; i++) {
+				int neighbour = adjacent[i];
+				if (neighbour == tail) {
+					floodReachedTail = true;
+				}
+				if (seen[neighbour] != generation && body[neighbour] != bodyGeneration && !occupancy.isWall(neighbour)) {
+					seen[neighbour] = generation;
+					frontier[last++] = neighbour;
+				}
+			}
+		}
+		return last - 1;
+	}
+
+	private void nextBodyGeneration() {
+		if (body == null) {
+			body = new int[frontier.length];
+		}
+		bodyGeneration++;
+		if (bodyGeneration == 0) {
+			Arrays.fill(body, 0);
+			bodyGeneration = 1;
+		}
+	}
+
+	// cells taken off the frontier by every search this kernel has run, not counting the flood
+	// fills that check for room, so the figure compares the searches themselves
+	long nodesExpanded() {
+		return nodesExpanded;
+	}
+
+	// the most cells waiting on the frontier at once since the last reset
+	int frontierPeak() {
+		return frontierPeak;
+	}
+
+	void resetFrontierPeak() {
+		frontierPeak = 0;
+	}
+
+	int pathLength() {
+		return pathLength;
+	}
+
+	int pathCell(int index) {
+		return path[index];
+	}
+
+	// the first neighbour in expansion order, or -1 for a board with a single cell
+	int firstNeighbour(int cell) {
+		return neighboursOf(cell) > 0 ? adjacent[0] : -1;
+	}
+
+	// fills adjacent with the cell's neighbours in expansion order, returning how many there are
+	private int neighboursOf(int cell) {
+		return topology.neighbours(cell, adjacent);
+	}
+
+	private boolean isPassable(int cell, SnakeBody snake, Occupancy occupancy, boolean tailRecedes) {
+		if (!occupancy.isOccupied(cell)) {
+			return true;
+		}
+		if (!tailRecedes || occupancy.isWall(cell)) {
+			return false;
+		}
+		return manhattanDistance(snake.getHead(), cell) >= freeTick[cell];
+	}
+
+	// How many moves until each body cell is free. Only body cells are written, so only they can be read
+	private void stampFreeTicks(SnakeBody snake) {
+		if (freeTick == null) {
+			freeTick = new int[frontier.length];
+		}
+		int size = snake.size();
+		for (int i = 0; i < size; i++) {
+			freeTick[snake.get(i)] = size - i;
+		}
+	}
+
+	private int manhattanDistance(int first, int second) {
+		return Math.abs(second % width - first % width)
+				+ Math.abs(second / width - first / width);
+	}
+
+	private void buildPath(int goal) {
+		int length = 0;
+		for (int cell = goal; parent[cell] >= 0; cell = parent[cell]) {
+			length++;
+		}
+		pathLength = length;
+		for (int cell = goal; parent[cell] >= 0; cell = parent[cell]) {
+			path[--length] = cell;
+		}
+	}
+
+	private void push(int cell, int costSoFar, int start, int goal, Heuristic heuristic) {
+		long estimate = costSoFar + heuristic.estimate(cell, goal, width);
+		long tieBreak = Math.min(heuristic.tieBreak(start, cell, goal, width), MAX_TIE);
+		long entry = estimate << (CELL_BITS + TIE_BITS) | tieBreak << CELL_BITS | cell;
+
+		// a cell is pushed again each time a shorter way to it turns up, so this can outgrow the board
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		int i = heapSize++;
+		if (heapSize > frontierPeak) {
+			frontierPeak = heapSize;
+		}
+		while (i > 0) {
+			int parentIndex = (i - 1) >>> 1;
+			if (heap[parentIndex] <= entry) {
+				break;
+			}
+			heap[i] = heap[parentIndex];
+			i = parentIndex;
+		}
+		heap[i] = entry;
+	}
+
+	private long pop() {
+		long top = heap[0];
+		long entry = heap[--heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (entry <= heap[child]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = entry;
+		return top;
+	}
+
+	private void nextGeneration() {
+		generation++;
+		if (generation == 0) {
+			Arrays.fill(seen, 0);
+			if (closed != null) {
+				Arrays.fill(closed, 0);
+			}
+			if (backSeen != null) {
+				Arrays.fill(backSeen, 0);
+			}
+			generation = 1;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package sandbox;
+
+/**
+ * The snake's segments as packed cell indices (y * width + x) in a fixed-capacity ring buffer,
+ * head first. Moving pushes a head and pops the tail in O(1), and nothing is allocated
+ * once the buffer exists.
+ */
+class SnakeBody {
+
+	private final int width;
+	private final int[] cells;
+	private final int mask;
+	private int head;
+	private int size;
+	// steps forward round the cycle from each segment to the one in front, summed tail to head,
+	// kept up as the snake moves once something has asked for it; see cycleSpan
+	private HamiltonianCycle cycle;
+	private long cycleSpan;
+
+	public SnakeBody(int width, int height) {
+		this.width = width;
+		this.cells = new int[Integer.highestOneBit(Math.max(1, width * height - 1)) << 1];
+		this.mask = cells.length - 1;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+		cycleSpan = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// index 0 is the head, size() - 1 the tail
+	public int get(int index) {
+		return cells[(head - index) & mask];
+	}
+
+	public int getX(int index) {
+		return get(index) % width;
+	}
+
+	public int getY(int index) {
+		return get(index) / width;
+	}
+
+	public Coordinate getCoordinate(int index) {
+		return new Coordinate(getX(index), getY(index));
+	}
+
+	public int getHead() {
+		return cells[head];
+	}
+
+	public int getTail() {
+		return get(size - 1);
+	}
+
+	public void pushHead(int cell) {
+		if (cycle != null && size > 0) {
+			cycleSpan += cycle.distance(getHead(), cell, false);
+		}
+		head = (head + 1) & mask;
+		cells[head] = cell;
+		size++;
+	}
+
+	public int popTail() {
+		int tail = getTail();
+		size--;
+		if (cycle != null && size > 0) {
+			cycleSpan -= cycle.distance(tail, getTail(), false);
+		}
+		return tail;
+	}
+
+	// grows the snake by putting a segment back behind the tail
+	public void pushTail(int cell) {
+		if (cycle != null && size > 0) {
+			cycleSpan += cycle.distance(cell, getTail(), false);
+		}
+		size++;
+		cells[(head - size + 1) & mask] = cell;
+	}
+
+	/**
+	 * How far round the cycle, going forward, the body stretches from tail to head, counting
+	 * every segment's step so that a body that laps the cycle spans more than the whole of it.
+	 * The first call for a cycle walks the body, after that it is kept up on every move in O(1).
+	 */
+	long cycleSpan(HamiltonianCycle cycle) {
+		if (this.cycle != cycle) {
+			this.cycle = cycle;
+			cycleSpan = 0;
+			for (int i = size - 1; i > 0; i--) {
+				cycleSpan += cycle.distance(get(i), get(i - 1), false);
+			}
+		}
+		return cycleSpan;
+	}
+
+	public int cellOf(int x, int y) {
+		return y * width + x;
+	}
+
+	public int cellOf(Coordinate coordinate) {
+		return cellOf(coordinate.x, coordinate.y);
+	}
+}
@@ -1,83 +1,86 @@
-package sandbox;
-
-import java.awt.Color;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
-import javax.swing.JFrame;
-import javax.swing.Timer;
-
-@SuppressWarnings("serial")
-public class SnakeJFrame extends JFrame implements ActionListener, GameSpeedHandler {
-
-	private final int DEFAULT_DELAY = 180;
-	private final int FAST_DELAY = 1;
-	int currentDelay = DEFAULT_DELAY;
-	
-	View view;
-	Board board;
-	private Timer timer;
-	
-	public SnakeJFrame() {
-		initUI();		
-	}
-	
-
-	private void initUI() {
-		timer = new Timer(currentDelay, this);
-
-		view = new View();
-		board = new Board(view, this);
-		view.setBoard(board);
-		add(view);
-		
-
-		setTitle("Snake");
-		setLocationRelativeTo(null);
-		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		addKeyListener(new KeyAdapterAwt(board));
-		setFocusable(true);
-		setMinimumSize(view.getPreferredSize());
-		
-		setResizable(true);
-		pack();
-		
-		timer.start();
-	}
-	
-	public static void main(String[] args) {
-		JFrame ex = new SnakeJFrame();
-		ex.setVisible(true);
-	}
-
-	@Override
-	public void actionPerformed(ActionEvent e) {
-		board.actionPerformed();
-		repaint();
-	}
-
-	@Override
-	public void gameStarted() {
-		timer.start();
-	}
-	
-	@Override
-	public void gamePaused() {
-		timer.stop();
-	}
-
-	@Override
-	public void gameSpeedChanged() {
-		if (currentDelay == DEFAULT_DELAY) {
-			currentDelay = FAST_DELAY;
-		} else if (currentDelay == FAST_DELAY) {
-			currentDelay = DEFAULT_DELAY;
-		}
-		timer.setDelay(currentDelay);
-	}
-
-	@Override
-	public boolean isFast() {
-		return currentDelay == FAST_DELAY;
-	}
-}
\ No newline at end of file
+package sandbox;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.swing.JFrame;
+import javax.swing.Timer;
+
+@SuppressWarnings("serial")
+public class SnakeJFrame extends JFrame implements ActionListener {
+
+	// the game runs on its own thread, this is only how often it's drawn
+	private final int FRAME_DELAY = 16;
+	
+	View view;
+	Board board;
+	private GameLoop loop;
+	private Timer timer;
+	
+	public SnakeJFrame() {
+		this(Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT, GameLoop.DEFAULT_TICKS_PER_FRAME);
+	}
+	
+	public SnakeJFrame(int width, int height, int ticksPerFrame) {
+		this(new Random().nextLong(), GameMap.empty(width, height), ticksPerFrame);
+	}
+	
+	public SnakeJFrame(long seed, GameMap map, int ticksPerFrame) {
+		initUI(seed, map, ticksPerFrame);		
+	}
+	
+
+	private void initUI(long seed, GameMap map, int ticksPerFrame) {
+		timer = new Timer(FRAME_DELAY, this);
+
+		view = new View();
+		loop = new GameLoop(ticksPerFrame);
+		board = new Board(view, loop, seed, map);
+		loop.setBoard(board);
+		view.setBoard(board);
+		add(view);
+		
+
+		setTitle("Snake");
+		setLocationRelativeTo(null);
+		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		addKeyListener(new KeyAdapterAwt(board, loop));
+		setFocusable(true);
+		setMinimumSize(view.getPreferredSize());
+		
+		setResizable(true);
+		pack();
+		
+		loop.start();
+		timer.start();
+	}
+	
+	/**
+	 * Usage: SnakeJFrame [width] [height] [ticksPerFrame]
+	 * <p>
+	 * Takes the map from -Dsnek.map, -Dsnek.walls and -Dsnek.foods as {@link GameMap#fromProperties} does.
+	 */
+	public static void main(String[] args) throws IOException {
+		int width = args.length > 0 ? Integer.parseInt(args[0]) : Board.DEFAULT_WIDTH;
+		int height = args.length > 1 ? Integer.parseInt(args[1]) : width;
+		int ticksPerFrame = args.length > 2 ? Integer.parseInt(args[2]) : GameLoop.DEFAULT_TICKS_PER_FRAME;
+		long seed = new Random().nextLong();
+		JFrame ex = new SnakeJFrame(seed, GameMap.fromProperties(width, height, seed), ticksPerFrame);
+		ex.setVisible(true);
+	}
+
+	// Starts the replay straight away, the keys still pause it and change its speed
+	void play(ReplayPlayer replay) {
+		loop.execute(() -> {
+			board.replay(replay);
+			board.togglePause();
+		});
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		view.refresh();
+	}
+}
@@ -0,0 +1,21 @@
+package sandbox;
+
+import java.util.concurrent.TimeUnit;
+
+// How often the game loop ticks, F steps through them in order
+enum Speed {
+	NORMAL(180), 
+	FAST(1), 
+	UNLIMITED(0);
+
+	// 0 means as fast as the game can run
+	final long tickNanos;
+
+	Speed(long tickMillis) {
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+	}
+
+	Speed next() {
+		return values()[(ordinal() + 1) % values().length];
+	}
+}
@@ -0,0 +1,177 @@
+package sandbox;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How the cells of a board connect, on packed cell indices (y * width + x): each cell's
+ * neighbours in the order searches expand them, its neighbour in a Direction (-1 off the
+ * edge), and the Direction from a cell to one next to it. The neighbour table is built once
+ * per board size and shared by the board and every search. Boards above LARGE_BOARD_CELLS
+ * work neighbours out as they're asked for, as the table would take 16 bytes a cell.
+ */
+class Topology {
+
+	private static final Map<Long, Topology> TOPOLOGIES = new ConcurrentHashMap<>();
+	static final int LARGE_BOARD_CELLS = SearchKernel.LARGE_BOARD_CELLS;
+	// candidate neighbours in the order the old HashSet was filled: down, up, left, right
+	private static final int[] CANDIDATE_X = { 0, 0, -1, 1 },
+							   CANDIDATE_Y = { 1, -1, 0, 0 };
+	private static final int OFF_BOARD = Integer.MAX_VALUE;
+
+	private final int width, height;
+	// four neighbours per cell in search order, padded with -1, or null on large boards
+	private final int[] neighbours;
+
+	private Topology(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int cells = width * height;
+		if (cells > LARGE_BOARD_CELLS) {
+			this.neighbours = null;
+			return;
+		}
+		this.neighbours = new int[cells * 4];
+		Arrays.fill(neighbours, -1);
+		for (int cell = 0; cell < cells; cell++) {
+			orderedNeighbours(cell, neighbours, cell * 4);
+		}
+	}
+
+	static Topology forBoard(int width, int height) {
+		return TOPOLOGIES.computeIfAbsent((long) width << 32 | height, e -> new Topology(width, height));
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int cells() {
+		return width * height;
+	}
+
+	public int cellOf(int x, int y) {
+		return y * width + x;
+	}
+
+	public int x(int cell) {
+		return cell % width;
+	}
+
+	public int y(int cell) {
+		return cell / width;
+	}
+
+	// fills out with the cell's neighbours in search order, returning how many there are
+	public int neighbours(int cell, int[] out) {
+		if (neighbours == null) {
+			return orderedNeighbours(cell, out, 0);
+		}
+		int count = 0;
+		for (int i = cell * 4, end = i + 4; i < end && neighbours[i] >= 0; i++) {
+			out[count++] = neighbours[i];
+		}
+		return count;
+	}
+
+	// the cell one step away in direction, or -1 off the board
+	public int neighbour(int cell, Direction direction) {
+		int x = cell % width, 
+			y = cell / width;
+		switch (direction) {
+			case LEFT:
+				x--;
+				break;
+			case RIGHT:
+				x++;
+				break;
+			case UP:
+				y--;
+				break;
+			case DOWN:
+				y++;
+				break;
+		}
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return -1;
+		}
+		return y * width + x;
+	}
+
+	// the direction from one cell to another next to it, or null if they aren't next to each other
+	public Direction direction(int from, int to) {
+		int difference = to - from;
+		if (difference == width) {
+			return Direction.DOWN;
+		} else if (difference == -width) {
+			return Direction.UP;
+		} else if (difference == 1 && to % width != 0) {
+			return Direction.RIGHT;
+		} else if (difference == -1 && from % width != 0) {
+			return Direction.LEFT;
+		}
+		return null;
+	}
+
+	/*
+	 * Neighbours are listed in the order the old HashSet<Coordinate> of neighbours iterated in
+	 * (bucket order of Coordinate.hashCode in a default-sized table, then insertion order:
+	 * down, up, left, right), so searches still find exactly the same paths.
+	 */
+	private int orderedNeighbours(int cell, int[] out, int base) {
+		int x = cell % width, 
+			y = cell / width;
+		// bucket, then the order candidates were added in, so a sort on this is stable
+		int k0 = sortKey(x, y, 0), 
+			k1 = sortKey(x, y, 1), 
+			k2 = sortKey(x, y, 2), 
+			k3 = sortKey(x, y, 3), 
+			swap;
+		if (k0 > k1) { swap = k0; k0 = k1; k1 = swap; }
+		if (k2 > k3) { swap = k2; k2 = k3; k3 = swap; }
+		if (k0 > k2) { swap = k0; k0 = k2; k2 = swap; }
+		if (k1 > k3) { swap = k1; k1 = k3; k3 = swap; }
+		if (k1 > k2) { swap = k1; k1 = k2; k2 = swap; }
+
+		// candidates off the board sort last
+		int count = 0;
+		if (k0 != OFF_BOARD) {
+			out[base + count++] = cell + offset(k0);
+		}
+		if (k1 != OFF_BOARD) {
+			out[base + count++] = cell + offset(k1);
+		}
+		if (k2 != OFF_BOARD) {
+			out[base + count++] = cell + offset(k2);
+		}
+		if (k3 != OFF_BOARD) {
+			out[base + count++] = cell + offset(k3);
+		}
+		return count;
+	}
+
+	private int sortKey(int x, int y, int candidate) {
+		int cx = x + CANDIDATE_X[candidate], 
+			cy = y + CANDIDATE_Y[candidate];
+		if (cx < 0 || cx >= width || cy < 0 || cy >= height) {
+			return OFF_BOARD;
+		}
+		return bucket(cx, cy) << 2 | candidate;
+	}
+
+	private int offset(int sortKey) {
+		int candidate = sortKey & 3;
+		return CANDIDATE_Y[candidate] * width + CANDIDATE_X[candidate];
+	}
+
+	// Coordinate.hashCode, spread as HashMap does, in a table of 16
+	private static int bucket(int x, int y) {
+		int hash = 31 * (31 + x) + y;
+		return (hash ^ (hash >>> 16)) & 15;
+	}
+}
@@ -0,0 +1,213 @@
+package sandbox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Plays many seeded headless games of each pathfinding strategy across a fork-join pool.
+ * Every game gets its own {@link HeadlessGame} (and so its own Board and Random), so workers
+ * share nothing and throughput scales with the number of cores.
+ */
+class Tournament {
+
+	private final List<Pathfinding> strategies;
+	private final int gamesPerStrategy;
+	private final long baseSeed;
+	private final long maxTicks;
+	private final int parallelism;
+	private final GameMap map;
+	private Path replayDirectory;
+	private Path historyDirectory;
+	// one history writer per worker thread, as writers aren't thread safe
+	private final Map<Thread, HistoryWriter> histories = new ConcurrentHashMap<>();
+	private final AtomicInteger workers = new AtomicInteger();
+
+	public Tournament(List<Pathfinding> strategies, int gamesPerStrategy, long baseSeed, long maxTicks, int parallelism,
+			GameMap map) {
+		this.strategies = strategies;
+		this.gamesPerStrategy = gamesPerStrategy;
+		this.baseSeed = baseSeed;
+		this.maxTicks = maxTicks;
+		this.parallelism = parallelism;
+		this.map = map;
+	}
+
+	// Keeps a replay of every game that dies in the directory, named after its strategy and seed
+	public void recordFailuresTo(Path directory) {
+		this.replayDirectory = directory;
+	}
+
+	// Keeps every tick of every game in the directory, for HistoryReader. Game ids start again from
+	// 0 each run, so the directory has to start out empty or the reader would mix runs up
+	public void recordHistoryTo(Path directory) throws IOException {
+		try (Stream<Path> listing = Files.list(directory)) {
+			if (listing.findAny().isPresent()) {
+				throw new IllegalArgumentException("History directory " + directory 
+						+ " isn't empty, give -Dsnek.history an empty or new directory");
+			}
+		}
+		this.historyDirectory = directory;
+	}
+
+	public Map<Pathfinding, Summary> run() throws InterruptedException, ExecutionException, IOException {
+		List<Callable<GameResult>> games = new ArrayList<>();
+		for (Pathfinding strategy : strategies) {
+			for (int i = 0; i < gamesPerStrategy; i++) {
+				// every strategy plays the same seeds, so they face the same food sequence
+				long seed = baseSeed + i;
+				long gameId = games.size();
+				games.add(() -> play(strategy, seed, gameId));
+			}
+		}
+
+		Map<Pathfinding, Summary> summaries = new EnumMap<>(Pathfinding.class);
+		for (Pathfinding strategy : strategies) {
+			summaries.put(strategy, new Summary());
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<GameResult> future : pool.invokeAll(games)) {
+				GameResult result = future.get();
+				summaries.get(result.pathfinding).add(result);
+			}
+		} finally {
+			pool.shutdown();
+			for (HistoryWriter history : histories.values()) {
+				history.close();
+			}
+			histories.clear();
+		}
+		return summaries;
+	}
+
+	private GameResult play(Pathfinding strategy, long seed, long gameId) throws IOException {
+		HeadlessGame game = new HeadlessGame(strategy, seed, map);
+		if (historyDirectory != null) {
+			game.recordHistoryTo(histories.computeIfAbsent(Thread.currentThread(), 
+					e -> new HistoryWriter(historyDirectory, "worker-" + workers.getAndIncrement())), gameId);
+		}
+		if (replayDirectory == null) {
+			return game.run(maxTicks);
+		}
+		Path replay = replayDirectory.resolve(strategy + "-" + seed + ".snkr");
+		game.recordTo(replay);
+		GameResult result = game.run(maxTicks);
+		if (!result.died) {
+			Files.delete(replay);
+		}
+		return result;
+	}
+
+	static class Summary {
+		int games;
+		int deaths;
+		long totalScore;
+		int bestScore;
+		long totalLength;
+		long totalTicks;
+		long totalPlanningNanos;
+		long totalPlans;
+		long totalNodesExpanded;
+
+		void add(GameResult result) {
+			games++;
+			deaths += result.died ? 1 : 0;
+			totalScore += result.score;
+			bestScore = Math.max(bestScore, result.score);
+			totalLength += result.length;
+			totalTicks += result.ticks;
+			totalPlanningNanos += result.planningNanos;
+			totalPlans += result.plans;
+			totalNodesExpanded += result.nodesExpanded;
+		}
+
+		double mean(long total) {
+			return games == 0 ? 0 : (double) total / games;
+		}
+
+		double nodesPerPlan() {
+			return totalPlans == 0 ? 0 : (double) totalNodesExpanded / totalPlans;
+		}
+
+		double planningMicrosPerTick() {
+			return totalTicks == 0 ? 0 : totalPlanningNanos / 1_000.0 / totalTicks;
+		}
+	}
+
+	static String formatTable(Map<Pathfinding, Summary> summaries) {
+		StringBuilder table = new StringBuilder(String.format("%-17s %6s %6s %10s %6s %10s %12s %12s %12s%n",
+				"Strategy", "Games", "Deaths", "Score", "Best", "Length", "Ticks", "Plan us/tick", "Nodes/plan"));
+		for (Map.Entry<Pathfinding, Summary> entry : summaries.entrySet()) {
+			Summary summary = entry.getValue();
+			table.append(String.format("%-17s %6d %6d %10.1f %6d %10.1f %12.1f %12.2f %12.1f%n",
+					entry.getKey(), summary.games, summary.deaths,
+					summary.mean(summary.totalScore), summary.bestScore,
+					summary.mean(summary.totalLength), summary.mean(summary.totalTicks),
+					summary.planningMicrosPerTick(), summary.nodesPerPlan()));
+		}
+		return table.toString();
+	}
+
+	/**
+	 * Usage: Tournament [gamesPerStrategy] [baseSeed] [maxTicks] [threads] [width] [height] [strategy...]
+	 * <p>
+	 * With -Dsnek.replays=directory, games that die are saved there for {@link ReplayPlayer}.
+	 * With -Dsnek.history=directory, every tick of every game is kept there for {@link HistoryReader},
+	 * game ids being the order the games are listed in: each strategy's games in turn. The
+	 * directory must be empty or not exist yet.
+	 * Every game is played on the map from -Dsnek.map, -Dsnek.walls and -Dsnek.foods, as
+	 * {@link GameMap#fromProperties} reads them with the base seed.
+	 */
+	public static void main(String[] args) throws Exception {
+		int gamesPerStrategy = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		long baseSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		long maxTicks = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		int width = args.length > 4 ? Integer.parseInt(args[4]) : Board.DEFAULT_WIDTH;
+		int height = args.length > 5 ? Integer.parseInt(args[5]) : width;
+
+		List<Pathfinding> strategies = new ArrayList<>();
+		for (int i = 6; i < args.length; i++) {
+			strategies.add(Pathfinding.valueOf(args[i]));
+		}
+		if (strategies.isEmpty()) {
+			Arrays.stream(Pathfinding.values())
+				.filter(e -> e != Pathfinding.MANUAL)
+				.forEach(strategies::add);
+		}
+
+		Tournament tournament = new Tournament(strategies, gamesPerStrategy, baseSeed, maxTicks, threads, 
+				GameMap.fromProperties(width, height, baseSeed));
+		String replays = System.getProperty("snek.replays");
+		if (replays != null) {
+			tournament.recordFailuresTo(Files.createDirectories(Paths.get(replays)));
+		}
+		String history = System.getProperty("snek.history");
+		if (history != null) {
+			tournament.recordHistoryTo(Files.createDirectories(Paths.get(history)));
+		}
+
+		long start = System.nanoTime();
+		Map<Pathfinding, Summary> summaries = tournament.run();
+		double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+		System.out.print(formatTable(summaries));
+		System.out.printf("%d games on %d threads in %.1fs (%.1f games/s)%n",
+				gamesPerStrategy * strategies.size(), threads, seconds, gamesPerStrategy * strategies.size() / seconds);
+	}
+}
@@ -1,155 +1,323 @@
-package sandbox;
-
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.Graphics;
-import java.awt.Toolkit;
-import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
-
-import javax.swing.JPanel;
-
-@SuppressWarnings("serial")
-public class View extends JPanel {
-
-	private Dimension boardDimensions;
-	private final int DOT_SIZE = 10;
-	private final Color headColour = Color.WHITE, 
-			bodyColour = Color.GRAY,
-			defaultFoodColour = Color.GREEN;
-	private Color currentFoodColour = defaultFoodColour;
-	private List<Color> snakeColors = new ArrayList<>();
-	private boolean colourfulMode = false;
-	
-	private Board board;
-	
-	void setBoard(Board board) {
-		this.board = board;
-	}
-	
-	public void init(int startingSnakeLength, int width, int height) {
-		boardDimensions = new Dimension(width * DOT_SIZE, height * DOT_SIZE);
-		snakeColors = new ArrayList<Color>();
-		for (int i = 0; i <= startingSnakeLength; i++) {
-			snakeColors.add(randomColour());				
-		}
-		setBackground(Color.BLACK);
-		setFocusable(true);
-		setPreferredSize(getPreferredSize());
-	}
-	
-	public Dimension getPreferredSize() {
-		return boardDimensions;
-	}
-	
-	@Override
-	public void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		doDrawing(g, board.getGameState(), board.getFoodCoordinate(), board.getSnake(), board.getStates());
-	}
-	
-	public void doDrawing(
-			Graphics g, 
-			GameState gameState, 
-			Coordinate foodCoordinate,
-			List<Coordinate> snake,
-			List<String> states
-	) {
-		if (gameState == GameState.INIT) {
-			showMessage(g, "Welcome to Snek! Press Space to play");
-		} else {
-			g.setColor(colourfulMode ? currentFoodColour : defaultFoodColour);				
-			g.fillRect(foodCoordinate.x * DOT_SIZE, foodCoordinate.y * DOT_SIZE, DOT_SIZE, DOT_SIZE);
-
-			drawSnake(g, snake);
-			
-			showStates(g, states);
-			
-			if (gameState == GameState.FAIL) {
-				showMessage(g, "Game Over, Press Space to restart");
-			} else if (gameState == GameState.PAUSED) {
-				showMessage(g, "Paused");
-				showStates(g, states);
-				showOptionsMessage(g);
-			}
-			
-			Toolkit.getDefaultToolkit().sync();
-		}
-	}
-	
-	private void drawSnake(Graphics g, List<Coordinate> snake) {
-		for (int i = snake.size() - 1; i >= 0; i--) {
-			//head
-			if (i == 0) {
-				g.setColor(headColour);
-			//body
-			} else {
-				g.setColor(colourfulMode ? snakeColors.get(i) : bodyColour);						
-			}
-			g.fillRect(snake.get(i).x * DOT_SIZE, snake.get(i).y * DOT_SIZE, DOT_SIZE, DOT_SIZE);
-		}
-	}
-
-	private void showMessage(Graphics g, String msg) {
-		Font small = new Font("Helvetica", Font.BOLD, 14);
-		g.setColor(Color.white);
-		g.setFont(small);
-		g.drawString(msg, 
-				(boardDimensions.width - g.getFontMetrics().stringWidth(msg)) / 2, 
-				boardDimensions.height / 3);
-	}
-	
-	private void showOptionsMessage(Graphics g) {
-		Font small = new Font("Helvetica", Font.BOLD, 14);
-		g.setColor(Color.white);
-		g.setFont(small);
-		List<String> options = new ArrayList<>();
-		options.add("Options:");
-		options.add("F: Fast");
-		options.add("C: Colourful mode");
-		
-		Arrays.asList(Pathfinding.values())
-			.stream()
-			.filter(e -> e != Pathfinding.MANUAL)
-			.map(e -> KeyEvent.getKeyText(e.matchingKey()) + ": " + e.getFullDescription())
-			.sequential()
-			.collect(Collectors.toCollection(() -> options));
-		
-		for (int i = 0; i < options.size(); i++) {
-			g.drawString(
-					options.get(i), 
-					0, 
-					boardDimensions.height - (g.getFontMetrics().getHeight() * (options.size() - i)));			
-		}
-	}
-	
-	private void showStates(Graphics g, List<String> states) {
-		g.setColor(Color.white);
-		g.setFont(new Font("Helvetica", Font.BOLD, 14));
-		
-		if (colourfulMode && !states.contains("Colourful")) {
-			states.add("Colourful");
-		}
-		
-		for (int i = 0; i < states.size(); i++) {
-			g.drawString(states.get(i), 0, DOT_SIZE * (i + 1));			
-		}
-	}
-	
-	public void foodEaten() {
-		snakeColors.add(currentFoodColour);
-		currentFoodColour = randomColour();
-	}
-	
-	private Color randomColour() {
-		return new Color((int)(Math.random() * 0x1000000));
-	}
-	
-	public void toggleColourfulMode() {
-		colourfulMode = !colourfulMode;
-	}
-}
+package sandbox;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+@SuppressWarnings("serial")
+public class View extends JPanel implements GameView {
+
+	private Dimension boardDimensions;
+	private final int MAX_DOT_SIZE = 10;
+	private final int MAX_VIEW_SIZE = 800;
+	// cells are drawn smaller on bigger boards, and past one pixel each only the part round the head is shown
+	private int dotSize = MAX_DOT_SIZE;
+	private int viewColumns, viewRows;
+	private int viewX, viewY;
+	private final Color headColour = Color.WHITE, 
+			bodyColour = Color.GRAY,
+			wallColour = Color.BLUE,
+			defaultFoodColour = Color.GREEN;
+	private Color currentFoodColour = defaultFoodColour;
+	private List<Color> snakeColors = new ArrayList<>();
+	private boolean colourfulMode = false;
+	private final Font font = new Font("Helvetica", Font.BOLD, 14);
+	private FontMetrics metrics;
+	private List<String> options;
+	
+	private Board board;
+	// the board as last drawn, each tick only the cells that changed since are drawn again
+	private BufferedImage buffer;
+	private Graphics bufferGraphics;
+	private BoardSnapshot drawn;
+	private boolean drawnColourful;
+	// the metrics overlay is only worked out a few times a second, it would be unreadable any faster
+	private final long STATISTICS_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+	private List<String> statistics = Collections.emptyList();
+	private long statisticsUpdated;
+	
+	void setBoard(Board board) {
+		this.board = board;
+	}
+	
+	@Override
+	public void init(int startingSnakeLength, int width, int height) {
+		dotSize = Math.max(1, Math.min(MAX_DOT_SIZE, MAX_VIEW_SIZE / Math.max(width, height)));
+		viewColumns = Math.min(width, MAX_VIEW_SIZE / dotSize);
+		viewRows = Math.min(height, MAX_VIEW_SIZE / dotSize);
+		viewX = 0;
+		viewY = 0;
+		boardDimensions = new Dimension(viewColumns * dotSize, viewRows * dotSize);
+		buffer = new BufferedImage(boardDimensions.width, boardDimensions.height, BufferedImage.TYPE_INT_RGB);
+		bufferGraphics = buffer.getGraphics();
+		drawn = null;
+		snakeColors = new ArrayList<Color>();
+		for (int i = 0; i <= startingSnakeLength; i++) {
+			snakeColors.add(randomColour());				
+		}
+		setBackground(Color.BLACK);
+		setFocusable(true);
+		setPreferredSize(getPreferredSize());
+	}
+	
+	public Dimension getPreferredSize() {
+		return boardDimensions;
+	}
+	
+	/**
+	 * Brings the back buffer up to date with the board's latest snapshot and asks for the
+	 * changed part of the panel to be repainted. Has to be called on the event thread.
+	 */
+	public void refresh() {
+		BoardSnapshot snapshot = board.getSnapshot();
+		updateStatistics(snapshot);
+		if (snapshot == drawn && colourfulMode == drawnColourful) {
+			return;
+		}
+		int oldViewX = viewX, 
+			oldViewY = viewY;
+		if (snapshot.getGameState() != GameState.INIT) {
+			followHead(snapshot);
+		}
+		
+		// colourful segments shift colour every move, so they can't be drawn a cell at a time
+		int moves = drawn == null ? -1 : snapshot.movesSince(drawn);
+		if (moves < 0 || moves >= snapshot.length() 
+				|| colourfulMode || drawnColourful
+				|| viewX != oldViewX || viewY != oldViewY
+				|| snapshot.getGameState() != drawn.getGameState() 
+				|| snapshot.getStates() != drawn.getStates()) {
+			drawBoard(snapshot);
+			repaint();
+		} else {
+			drawChanges(drawn, snapshot, moves);
+		}
+		drawn = snapshot;
+		drawnColourful = colourfulMode;
+	}
+	
+	private void updateStatistics(BoardSnapshot snapshot) {
+		Metrics metrics = board.getMetrics();
+		if (metrics == null && statistics.isEmpty()) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (metrics != null && now - statisticsUpdated < STATISTICS_INTERVAL) {
+			return;
+		}
+		int lines = statistics.size();
+		statistics = metrics == null ? Collections.emptyList() : metrics.summary();
+		statisticsUpdated = now;
+		
+		lines = Math.max(lines, statistics.size()) + snapshot.getStates().size() + 1;
+		repaint(0, 0, boardDimensions.width, getFontMetrics(font).getHeight() * (lines + 1));
+	}
+	
+	@Override
+	public void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		if (drawn == null) {
+			refresh();
+		}
+		doDrawing(g, drawn);
+	}
+	
+	public void doDrawing(Graphics g, BoardSnapshot snapshot) {
+		GameState gameState = snapshot.getGameState();
+		List<String> states = snapshot.getStates();
+		if (gameState == GameState.INIT) {
+			showMessage(g, "Welcome to Snek! Press Space to play");
+		} else {
+			g.drawImage(buffer, 0, 0, null);
+			
+			showStates(g, states);
+			
+			if (gameState == GameState.FAIL) {
+				showMessage(g, "Game Over, Press Space to restart");
+			} else if (gameState == GameState.WON) {
+				showMessage(g, "Board filled! Press Space to restart");
+			} else if (gameState == GameState.PAUSED) {
+				showMessage(g, "Paused");
+				showStates(g, states);
+				showOptionsMessage(g);
+			}
+			
+			Toolkit.getDefaultToolkit().sync();
+		}
+	}
+	
+	private void drawBoard(BoardSnapshot snapshot) {
+		bufferGraphics.setColor(Color.BLACK);
+		bufferGraphics.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+		if (snapshot.getGameState() == GameState.INIT) {
+			return;
+		}
+		bufferGraphics.setColor(wallColour);
+		for (int i = 0; i < snapshot.walls(); i++) {
+			fillCell(bufferGraphics, snapshot.getWallX(i), snapshot.getWallY(i));
+		}
+		bufferGraphics.setColor(colourfulMode ? currentFoodColour : defaultFoodColour);				
+		for (int i = 0; i < snapshot.foods(); i++) {
+			fillCell(bufferGraphics, snapshot.getFoodX(i), snapshot.getFoodY(i));
+		}
+		drawSnake(bufferGraphics, snapshot);
+	}
+	
+	// Clears the cells the tail left and the old food, then draws the new head cells and food.
+	// The food only needs drawing again when some was eaten
+	private void drawChanges(BoardSnapshot before, BoardSnapshot after, int moves) {
+		boolean foodChanged = after.foodChangedSince(before);
+		bufferGraphics.setColor(Color.BLACK);
+		for (int i = Math.max(0, after.length() - moves); i < before.length(); i++) {
+			dirtyCell(before.getX(i), before.getY(i));
+		}
+		for (int i = 0; foodChanged && i < before.foods(); i++) {
+			dirtyCell(before.getFoodX(i), before.getFoodY(i));
+		}
+		
+		bufferGraphics.setColor(bodyColour);
+		for (int i = moves; i > 0; i--) {
+			dirtyCell(after.getX(i), after.getY(i));
+		}
+		bufferGraphics.setColor(headColour);
+		dirtyCell(after.getX(0), after.getY(0));
+		bufferGraphics.setColor(defaultFoodColour);
+		for (int i = 0; foodChanged && i < after.foods(); i++) {
+			dirtyCell(after.getFoodX(i), after.getFoodY(i));
+		}
+	}
+	
+	private void dirtyCell(int x, int y) {
+		if (fillCell(bufferGraphics, x, y)) {
+			repaint((x - viewX) * dotSize, (y - viewY) * dotSize, dotSize, dotSize);
+		}
+	}
+	
+	private void drawSnake(Graphics g, BoardSnapshot snake) {
+		for (int i = snake.length() - 1; i >= 0; i--) {
+			//head
+			if (i == 0) {
+				g.setColor(headColour);
+			//body
+			} else {
+				// colours for food just eaten may not have been added yet
+				g.setColor(colourfulMode && i < snakeColors.size() ? snakeColors.get(i) : bodyColour);						
+			}
+			fillCell(g, snake.getX(i), snake.getY(i));
+		}
+	}
+	
+	private boolean fillCell(Graphics g, int x, int y) {
+		if (x >= viewX && x < viewX + viewColumns && y >= viewY && y < viewY + viewRows) {
+			g.fillRect((x - viewX) * dotSize, (y - viewY) * dotSize, dotSize, dotSize);
+			return true;
+		}
+		return false;
+	}
+	
+	// keeps the head in the middle third of the view when the board doesn't fit
+	private void followHead(BoardSnapshot snake) {
+		viewX = follow(viewX, viewColumns, snake.getX(0), snake.getWidth());
+		viewY = follow(viewY, viewRows, snake.getY(0), snake.getHeight());
+	}
+	
+	private int follow(int origin, int visible, int head, int size) {
+		if (visible >= size) {
+			return 0;
+		}
+		if (head < origin + visible / 3 || head >= origin + visible * 2 / 3) {
+			origin = head - visible / 2;
+		}
+		return Math.max(0, Math.min(size - visible, origin));
+	}
+
+	private FontMetrics metrics(Graphics g) {
+		if (metrics == null) {
+			metrics = g.getFontMetrics(font);
+		}
+		return metrics;
+	}
+
+	private void showMessage(Graphics g, String msg) {
+		g.setColor(Color.white);
+		g.setFont(font);
+		g.drawString(msg, 
+				(boardDimensions.width - metrics(g).stringWidth(msg)) / 2, 
+				boardDimensions.height / 3);
+	}
+	
+	private void showOptionsMessage(Graphics g) {
+		g.setColor(Color.white);
+		g.setFont(font);
+		if (options == null) {
+			List<String> lines = new ArrayList<>();
+			lines.add("Options:");
+			lines.add("F: Fast");
+			lines.add("C: Colourful mode");
+			
+			Arrays.asList(Pathfinding.values())
+				.stream()
+				.filter(e -> e != Pathfinding.MANUAL)
+				.map(e -> KeyEvent.getKeyText(e.matchingKey()) + ": " + e.getFullDescription())
+				.sequential()
+				.collect(Collectors.toCollection(() -> lines));
+			options = lines;
+		}
+		
+		for (int i = 0; i < options.size(); i++) {
+			g.drawString(
+					options.get(i), 
+					0, 
+					boardDimensions.height - (metrics(g).getHeight() * (options.size() - i)));			
+		}
+	}
+	
+	private void showStates(Graphics g, List<String> states) {
+		g.setColor(Color.white);
+		g.setFont(font);
+		
+		if (colourfulMode || !statistics.isEmpty()) {
+			states = new ArrayList<>(states);
+			if (colourfulMode) {
+				states.add("Colourful");
+			}
+			states.addAll(statistics);
+		}
+		
+		for (int i = 0; i < states.size(); i++) {
+			g.drawString(states.get(i), 0, metrics(g).getHeight() * (i + 1));			
+		}
+	}
+	
+	// called on the game thread, the colours are only used on the event thread
+	@Override
+	public void foodEaten() {
+		SwingUtilities.invokeLater(() -> {
+			snakeColors.add(currentFoodColour);
+			currentFoodColour = randomColour();
+		});
+	}
+	
+	private Color randomColour() {
+		return new Color((int)(Math.random() * 0x1000000));
+	}
+	
+	@Override
+	public void toggleColourfulMode() {
+		SwingUtilities.invokeLater(() -> colourfulMode = !colourfulMode);
+	}
+}
@@ -0,0 +1,103 @@
+package sandbox;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Steers two snakes by hand through the ways their moves can meet. On a 12x8 board the first
+ * snake starts on row 5 and the second on row 7, both with their heads at x = 5 and their
+ * tails at x = 1, heading right.
+ */
+class ArenaTest {
+
+	private static final int WIDTH = 12, HEIGHT = 8;
+	private static final Direction UP = Direction.UP, DOWN = Direction.DOWN, LEFT = Direction.LEFT,
+			RIGHT = Direction.RIGHT;
+
+	private Arena arena;
+
+	@BeforeEach
+	void startArena() {
+		arena = new Arena(List.of(Pathfinding.BFS, Pathfinding.BFS), 0, GameMap.empty(WIDTH, HEIGHT),
+				ForkJoinPool.commonPool());
+		arena.setFoods(cell(11, 0));
+	}
+
+	@Test
+	void longerSnakeWinsHeadOnMeetingOnFood() {
+		// the first snake grows to 6 while the second stays at 5
+		arena.setFoods(cell(6, 5));
+		arena.tick(RIGHT, RIGHT);
+		arena.setFoods(cell(6, 6));
+		arena.tick(DOWN, UP);
+
+		assertTrue(arena.isAlive(0));
+		assertFalse(arena.isAlive(1));
+		assertEquals(0, arena.winner());
+		assertEquals(cell(6, 6), arena.getBody(0).getHead());
+		assertEquals(7, arena.getBody(0).size());
+		assertEquals(2, arena.getScore(0));
+		// the loser reached the food too, but didn't live to eat it
+		assertEquals(0, arena.getScore(1));
+		assertFalse(Arrays.stream(arena.getFoods()).anyMatch(food -> food == cell(6, 6)));
+		assertOnlyBodiesOccupied();
+	}
+
+	@Test
+	void snakesOfEqualLengthMeetingBothDie() {
+		arena.tick(RIGHT, RIGHT);
+		arena.tick(DOWN, UP);
+
+		assertFalse(arena.isAlive(0));
+		assertFalse(arena.isAlive(1));
+		assertEquals(-1, arena.winner());
+		assertOnlyBodiesOccupied();
+	}
+
+	@Test
+	void headCanEnterTheCellAnotherSnakesTailLeaves() {
+		// the second snake eats once, so its tail stays put a tick and falls in step with the first's head
+		arena.setFoods(cell(6, 7));
+		arena.tick(DOWN, RIGHT);
+		arena.setFoods(cell(11, 0));
+		arena.tick(LEFT, RIGHT);
+		arena.tick(LEFT, RIGHT);
+		assertEquals(cell(3, 7), arena.getBody(1).getTail());
+
+		arena.tick(DOWN, RIGHT);
+
+		assertTrue(arena.isAlive(0));
+		assertTrue(arena.isAlive(1));
+		assertEquals(cell(3, 7), arena.getBody(0).getHead());
+		assertEquals(cell(4, 7), arena.getBody(1).getTail());
+		assertOnlyBodiesOccupied();
+	}
+
+	// Every cell of a live snake is occupied and every other cell is free
+	private void assertOnlyBodiesOccupied() {
+		boolean[] expected = new boolean[WIDTH * HEIGHT];
+		for (int snake = 0; snake < 2; snake++) {
+			for (int i = 0; arena.isAlive(snake) && i < arena.getBody(snake).size(); i++) {
+				expected[arena.getBody(snake).get(i)] = true;
+			}
+		}
+		boolean[] occupied = new boolean[WIDTH * HEIGHT];
+		for (int cell = 0; cell < occupied.length; cell++) {
+			occupied[cell] = arena.getOccupancy().isOccupied(cell);
+		}
+		assertArrayEquals(expected, occupied);
+	}
+
+	private static int cell(int x, int y) {
+		return y * WIDTH + x;
+	}
+}
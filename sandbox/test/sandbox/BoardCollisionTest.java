@@ -0,0 +1,158 @@
+package sandbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plays random walks on small boards and checks every tick against the collision check Board
+ * had before it read the cell the head entered: a List of segments, moved the way the old board
+ * moved it and scanned for the head. The walks mostly avoid the body, so games run long, but
+ * steer into it, the edges and the cell the tail is leaving often enough to cover every way a
+ * move can end. -Dsnek.collisionTicks sets how many ticks are played.
+ */
+class BoardCollisionTest implements GameView, GameSpeedHandler {
+
+	private static final long TICKS = Long.getLong("snek.collisionTicks", 2_000_000);
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final Random random = new Random(42);
+	private int tailEntries;
+	private int bodyCollisions;
+	private int edgeCollisions;
+
+	@Test
+	void collisionMatchesScanningTheBody() {
+		long ticks = 0;
+		while (ticks < TICKS) {
+			ticks += playGame();
+		}
+		// the walk has to have hit every case for the comparison to mean anything
+		assertTrue(tailEntries > 0, "no move into the cell the tail was leaving");
+		assertTrue(bodyCollisions > 0, "no move into the body");
+		assertTrue(edgeCollisions > 0, "no move off the board");
+	}
+
+	private long playGame() {
+		int width = 6 + random.nextInt(4),
+			height = 6 + random.nextInt(4);
+		Board board = new Board(this, this, random.nextLong(), width, height);
+		board.togglePause();
+
+		// head first, as the old board kept it
+		LinkedList<Coordinate> snake = new LinkedList<>();
+		for (int i = 0; i < board.getSnake().size(); i++) {
+			snake.add(board.getSnake().getCoordinate(i));
+		}
+		Direction current = Direction.RIGHT;
+		long ticks = 0;
+		while (board.getGameState() == GameState.LIVE) {
+			int food = board.getFoods()[0];
+			Direction direction = randomWalk(snake, width, height, current);
+			board.directionPressed(direction);
+			board.actionPerformed();
+			current = direction;
+			ticks++;
+
+			GameState expected = legacyMove(snake, direction, new Coordinate(food % width, food / width), width, height);
+			assertEquals(expected, board.getGameState(), "game state after tick " + ticks);
+			if (expected != GameState.FAIL) {
+				assertEquals(snake.size(), board.getSnake().size(), "length after tick " + ticks);
+				for (int i = 0; i < snake.size(); i++) {
+					assertEquals(snake.get(i), board.getSnake().getCoordinate(i), "segment " + i + " after tick " + ticks);
+				}
+			}
+		}
+		return ticks;
+	}
+
+	// A direction that usually doesn't run into anything, but now and then does
+	private Direction randomWalk(LinkedList<Coordinate> snake, int width, int height, Direction current) {
+		Coordinate head = snake.getFirst();
+		Direction direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+		for (int tries = 0; tries < 8 && random.nextInt(50) != 0; tries++) {
+			direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+			Coordinate next = step(head, direction);
+			boolean onBoard = next.x >= 0 && next.x < width && next.y >= 0 && next.y < height;
+			// the tail counts as free, it's moving on
+			if (onBoard && (random.nextInt(6) == 0 || !snake.subList(0, snake.size() - 1).contains(next))) {
+				break;
+			}
+		}
+		// the board ignores reversing onto the neck
+		return direction == current.opposite() ? current : direction;
+	}
+
+	// The old board's move, growth and collision check, as the state it would have been left in
+	private GameState legacyMove(LinkedList<Coordinate> snake, Direction direction, Coordinate food, int width, int height) {
+		Coordinate head = step(snake.getFirst(), direction);
+		if (head.x < 0 || head.x >= width || head.y < 0 || head.y >= height) {
+			edgeCollisions++;
+			return GameState.FAIL;
+		}
+		Coordinate last = snake.removeLast();
+		if (last.equals(head)) {
+			tailEntries++;
+		}
+		snake.addFirst(head);
+		if (head.equals(food)) {
+			snake.addLast(last);
+			if (snake.size() == width * height) {
+				return GameState.WON;
+			}
+		}
+		for (int i = 1; i < snake.size(); i++) {
+			if (snake.get(i).equals(head)) {
+				bodyCollisions++;
+				return GameState.FAIL;
+			}
+		}
+		return GameState.LIVE;
+	}
+
+	private static Coordinate step(Coordinate from, Direction direction) {
+		switch (direction) {
+			case LEFT:
+				return new Coordinate(from.x - 1, from.y);
+			case RIGHT:
+				return new Coordinate(from.x + 1, from.y);
+			case UP:
+				return new Coordinate(from.x, from.y - 1);
+			default:
+				return new Coordinate(from.x, from.y + 1);
+		}
+	}
+
+	@Override
+	public void init(int startingSnakeLength, int width, int height) {
+	}
+
+	@Override
+	public void foodEaten() {
+	}
+
+	@Override
+	public void toggleColourfulMode() {
+	}
+
+	@Override
+	public void gameStarted() {
+	}
+
+	@Override
+	public void gamePaused() {
+	}
+
+	@Override
+	public void gameSpeedChanged() {
+	}
+
+	@Override
+	public boolean isFast() {
+		return false;
+	}
+}